@@ -16,7 +16,11 @@
  */
 package io.gatling.mojo;
 
+import io.gatling.plugin.GatlingConstants;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.maven.plugins.annotations.Parameter;
 
 public abstract class AbstractGatlingExecutionMojo extends AbstractGatlingMojo {
@@ -33,4 +37,64 @@ public abstract class AbstractGatlingExecutionMojo extends AbstractGatlingMojo {
   /** Disable the plugin. */
   @Parameter(property = "gatling.skip", defaultValue = "false")
   protected boolean skip;
+
+  /**
+   * @param custom the JVM arguments configured in the POM
+   * @param override true to add them to the default JVM arguments, instead of replacing them
+   * @return the JVM arguments of Gatling forks
+   */
+  protected static List<String> gatlingJvmArgs(List<String> custom, boolean override) {
+    List<String> defaults = GatlingConstants.DEFAULT_JVM_OPTIONS_BASE;
+    List<String> result = new ArrayList<>();
+    if (custom == null || custom.isEmpty()) {
+      result.addAll(defaults);
+    } else {
+      result.addAll(custom);
+      if (override) {
+        result.addAll(defaults);
+      }
+    }
+    // force disable disableClassPathURLCheck because Debian messed up and takes
+    // forever to fix, see https://bugs.debian.org/cgi-bin/bugreport.cgi?bug=911925
+    result.add("-Djdk.net.URLClassPath.disableClassPathURLCheck=true");
+    return result;
+  }
+
+  /**
+   * Sizes the heap of a process generating the reports of a run for its simulation logs.
+   *
+   * @param jvmArgs the JVM arguments of the load test
+   * @param autoSizeHeap false to use the JVM arguments of the load test as is, true to size the
+   *     heap even when they set an explicit -Xmx, null to size it unless they do
+   * @param runDirectory the run directory
+   * @return the JVM options of the process, or null if the reports can't fit in the memory of the
+   *     host, a summary computed in a single streaming pass being written instead
+   * @throws IOException if the simulation logs can't be read
+   */
+  protected List<String> reportJvmArgs(
+      List<String> jvmArgs, Boolean autoSizeHeap, File runDirectory) throws IOException {
+    if (Boolean.FALSE.equals(autoSizeHeap)) {
+      return jvmArgs;
+    }
+    ReportSizing sizing = ReportSizing.estimate(SimulationLog.simulationLogs(runDirectory));
+    long availableMemoryMb = ReportSizing.availableMemoryMb();
+    if (!sizing.fits(availableMemoryMb)) {
+      getLog()
+          .warn(
+              "Reports of "
+                  + runDirectory.getName()
+                  + " need about "
+                  + sizing
+                  + ", more than the "
+                  + availableMemoryMb
+                  + " MB available, writing summaries instead");
+      SimulationStatistics statistics = SimulationStatistics.fromRunDirectory(runDirectory);
+      SummaryReport.write(statistics, runDirectory);
+      statistics.summaryLines().forEach(line -> getLog().info(line));
+      return null;
+    }
+    getLog().debug("Reports of " + runDirectory.getName() + ": " + sizing);
+    return sizing.jvmArgs(
+        jvmArgs, ReportSizing.totalMemoryMb(), Boolean.TRUE.equals(autoSizeHeap), getLog());
+  }
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reference statistics of previous green runs, stored as a tab separated file with one line per
+ * simulation and request.
+ */
+final class Baseline {
+
+  private static final String HEADER = "# simulation\trequest\tcount\tp50\tp95\tp99\trps";
+  private static final double[] PERCENTILES = {50, 95, 99};
+
+  // simulation -> request -> entry
+  private final Map<String, Map<String, Entry>> simulations = new TreeMap<>();
+
+  static Baseline read(File file) throws IOException {
+    Baseline baseline = new Baseline();
+    if (!file.exists()) {
+      return baseline;
+    }
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath())) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        String[] columns = line.split("\t");
+        if (columns.length < 7) {
+          throw new IOException("Malformed baseline line in " + file + ": " + line);
+        }
+        baseline
+            .simulations
+            .computeIfAbsent(columns[0], k -> new TreeMap<>())
+            .put(
+                columns[1],
+                new Entry(
+                    Long.parseLong(columns[2]),
+                    new long[] {
+                      Long.parseLong(columns[3]),
+                      Long.parseLong(columns[4]),
+                      Long.parseLong(columns[5])
+                    },
+                    Double.parseDouble(columns[6])));
+      }
+    }
+    return baseline;
+  }
+
+  void write(File file) throws IOException {
+    if (file.getParentFile() != null) {
+      Files.createDirectories(file.getParentFile().toPath());
+    }
+    try (BufferedWriter writer = Files.newBufferedWriter(file.toPath())) {
+      writer.write(HEADER);
+      writer.newLine();
+      for (Map.Entry<String, Map<String, Entry>> simulation : simulations.entrySet()) {
+        for (Map.Entry<String, Entry> request : simulation.getValue().entrySet()) {
+          Entry entry = request.getValue();
+          writer.write(
+              simulation.getKey()
+                  + '\t'
+                  + request.getKey()
+                  + '\t'
+                  + entry.count
+                  + '\t'
+                  + entry.percentiles[0]
+                  + '\t'
+                  + entry.percentiles[1]
+                  + '\t'
+                  + entry.percentiles[2]
+                  + '\t'
+                  + String.format(Locale.ROOT, "%.3f", entry.throughput));
+          writer.newLine();
+        }
+      }
+    }
+  }
+
+  /** Replaces the baseline of the simulation of the given run with the statistics of that run. */
+  void update(SimulationStatistics statistics) {
+    Map<String, Entry> requests = new TreeMap<>();
+    requests.put(
+        SimulationStatistics.ALL_REQUESTS, Entry.of(statistics, statistics.getAllRequests()));
+    for (SimulationStatistics.RequestStatistics request : statistics.getRequests()) {
+      requests.put(request.getName(), Entry.of(statistics, request));
+    }
+    simulations.put(statistics.getSimulationId(), requests);
+  }
+
+  /**
+   * Compares a run with this baseline.
+   *
+   * <p>A request only regresses when both the run and the baseline have at least {@code
+   * minSamples} samples, and a percentile is both more than {@code tolerancePercent} and more than
+   * {@code minDeltaMillis} above the baseline, or its throughput is more than {@code
+   * tolerancePercent} below the baseline.
+   *
+   * @return a description of every regression, empty if there is none
+   */
+  List<String> compare(
+      SimulationStatistics statistics,
+      double tolerancePercent,
+      long minSamples,
+      long minDeltaMillis) {
+    List<String> regressions = new ArrayList<>();
+    Map<String, Entry> requests = simulations.get(statistics.getSimulationId());
+    if (requests == null) {
+      return regressions;
+    }
+
+    double factor = tolerancePercent / 100;
+    for (Map.Entry<String, Entry> request : requests.entrySet()) {
+      SimulationStatistics.RequestStatistics current = statistics.getRequest(request.getKey());
+      Entry baseline = request.getValue();
+      if (current == null || current.getCount() < minSamples || baseline.count < minSamples) {
+        continue;
+      }
+
+      String prefix = statistics.getSimulationId() + " / " + request.getKey() + ": ";
+      for (int i = 0; i < PERCENTILES.length; i++) {
+        long expected = baseline.percentiles[i];
+        long actual = current.getPercentile(PERCENTILES[i]);
+        if (actual > expected * (1 + factor) && actual - expected > minDeltaMillis) {
+          regressions.add(
+              prefix
+                  + "p"
+                  + (int) PERCENTILES[i]
+                  + " "
+                  + actual
+                  + "ms exceeds baseline "
+                  + expected
+                  + "ms");
+        }
+      }
+
+      double throughput = statistics.getThroughput(current);
+      if (throughput < baseline.throughput * (1 - factor)) {
+        regressions.add(
+            prefix
+                + String.format(
+                    Locale.ROOT,
+                    "throughput %.2f rps is below baseline %.2f rps",
+                    throughput,
+                    baseline.throughput));
+      }
+    }
+    return regressions;
+  }
+
+  private static final class Entry {
+    private final long count;
+    private final long[] percentiles;
+    private final double throughput;
+
+    private Entry(long count, long[] percentiles, double throughput) {
+      this.count = count;
+      this.percentiles = percentiles;
+      this.throughput = throughput;
+    }
+
+    private static Entry of(
+        SimulationStatistics statistics, SimulationStatistics.RequestStatistics request) {
+      long[] percentiles = new long[PERCENTILES.length];
+      for (int i = 0; i < PERCENTILES.length; i++) {
+        percentiles[i] = request.getPercentile(PERCENTILES[i]);
+      }
+      return new Entry(request.getCount(), percentiles, statistics.getThroughput(request));
+    }
+  }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Hands out disjoint sets of CPUs to the injector processes running at the same time in a build,
+ * so that they neither migrate across all the cores of the host nor compete for the same ones.
+ *
+ * <p>Processes are pinned with {@literal taskset}, or with {@literal numactl} when the host has
+ * several NUMA nodes and the CPUs of a process all belong to the same node, its memory then being
+ * bound to that node too. Only the CPUs the build itself is allowed to run on are handed out.
+ */
+final class CpuAffinity {
+
+  private static final Path NODES = Paths.get("/sys/devices/system/node");
+
+  // weak keys, so that embedded builds don't leak hosts
+  private static final Map<Object, CpuAffinity> BUILDS = new WeakHashMap<>();
+
+  private final List<Integer> cpus;
+  private final Map<Integer, Integer> nodeByCpu;
+  private final boolean numactl;
+  private final Set<Integer> leased = new HashSet<>();
+
+  CpuAffinity(List<Integer> cpus, Map<Integer, Integer> nodeByCpu, boolean numactl) {
+    this.cpus = cpus;
+    this.nodeByCpu = nodeByCpu;
+    this.numactl = numactl && new HashSet<>(nodeByCpu.values()).size() > 1;
+  }
+
+  /** @return true if processes can be pinned on this host, i.e. on Linux with taskset */
+  static boolean isSupported() {
+    return Files.isDirectory(Paths.get("/proc/self")) && MojoUtils.isOnPath("taskset");
+  }
+
+  /**
+   * @param build an object shared by all the modules of the build, e.g. its execution request
+   * @return the CPUs of the host, shared by all the executions of the build
+   */
+  static synchronized CpuAffinity forBuild(Object build) {
+    return BUILDS.computeIfAbsent(build, b -> detect());
+  }
+
+  private static CpuAffinity detect() {
+    List<Integer> cpus = null;
+    try {
+      for (String line : Files.readAllLines(Paths.get("/proc/self/status"), UTF_8)) {
+        if (line.startsWith("Cpus_allowed_list:")) {
+          cpus = parseCpuList(line.substring(line.indexOf(':') + 1));
+        }
+      }
+    } catch (IOException e) {
+      // not Linux
+    }
+    if (cpus == null || cpus.isEmpty()) {
+      cpus = new ArrayList<>();
+      for (int i = 0; i < Runtime.getRuntime().availableProcessors(); i++) {
+        cpus.add(i);
+      }
+    }
+
+    Map<Integer, Integer> nodeByCpu = new HashMap<>();
+    if (Files.isDirectory(NODES)) {
+      try (DirectoryStream<Path> nodes = Files.newDirectoryStream(NODES, "node[0-9]*")) {
+        for (Path node : nodes) {
+          int id = Integer.parseInt(node.getFileName().toString().substring("node".length()));
+          String cpuList = new String(Files.readAllBytes(node.resolve("cpulist")), UTF_8);
+          for (int cpu : parseCpuList(cpuList)) {
+            nodeByCpu.put(cpu, id);
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        // no NUMA topology, CPUs are only pinned
+        nodeByCpu.clear();
+      }
+    }
+    return new CpuAffinity(cpus, nodeByCpu, MojoUtils.isOnPath("numactl"));
+  }
+
+  /**
+   * @param cpuList a Linux CPU list, e.g. {@literal 0-3,8,10-11}
+   * @return the CPUs of the list
+   */
+  static List<Integer> parseCpuList(String cpuList) {
+    List<Integer> cpus = new ArrayList<>();
+    for (String range : cpuList.trim().split(",")) {
+      if (range.isEmpty()) {
+        continue;
+      }
+      int dash = range.indexOf('-');
+      int first = Integer.parseInt(dash < 0 ? range : range.substring(0, dash));
+      int last = dash < 0 ? first : Integer.parseInt(range.substring(dash + 1));
+      for (int cpu = first; cpu <= last; cpu++) {
+        cpus.add(cpu);
+      }
+    }
+    return cpus;
+  }
+
+  /**
+   * @param cpus ordered CPUs
+   * @return the Linux CPU list of the CPUs, e.g. {@literal 0-3,8,10-11}
+   */
+  static String formatCpuList(List<Integer> cpus) {
+    StringBuilder cpuList = new StringBuilder();
+    for (int i = 0; i < cpus.size(); i++) {
+      int first = cpus.get(i);
+      while (i + 1 < cpus.size() && cpus.get(i + 1) == cpus.get(i) + 1) {
+        i++;
+      }
+      if (cpuList.length() > 0) {
+        cpuList.append(',');
+      }
+      cpuList.append(first);
+      if (cpus.get(i) != first) {
+        cpuList.append('-').append(cpus.get(i));
+      }
+    }
+    return cpuList.toString();
+  }
+
+  /** @return the number of CPUs the build may use */
+  int getCpuCount() {
+    return cpus.size();
+  }
+
+  /**
+   * Leases free CPUs to the processes of a run, keeping the CPUs of a process on a single NUMA node
+   * when possible. Processes that don't fit in the free CPUs aren't pinned.
+   *
+   * @param processes the number of processes of the run
+   * @param cpusPerProcess the number of CPUs of every process
+   * @return the lease, to close once the processes have exited
+   */
+  synchronized Lease lease(int processes, int cpusPerProcess) {
+    Map<Integer, List<Integer>> freeByNode = new LinkedHashMap<>();
+    for (int cpu : cpus) {
+      if (!leased.contains(cpu)) {
+        freeByNode
+            .computeIfAbsent(nodeByCpu.getOrDefault(cpu, -1), n -> new ArrayList<>())
+            .add(cpu);
+      }
+    }
+
+    List<Placement> placements = new ArrayList<>(processes);
+    for (int i = 0; i < processes && cpusPerProcess > 0; i++) {
+      // best fit, to keep the nodes with the most free CPUs for larger processes
+      Map.Entry<Integer, List<Integer>> bestNode = null;
+      for (Map.Entry<Integer, List<Integer>> node : freeByNode.entrySet()) {
+        int free = node.getValue().size();
+        if (free >= cpusPerProcess && (bestNode == null || free < bestNode.getValue().size())) {
+          bestNode = node;
+        }
+      }
+      Placement placement;
+      if (bestNode != null) {
+        placement = new Placement(take(bestNode.getValue(), cpusPerProcess), bestNode.getKey());
+      } else {
+        // spread over several nodes
+        List<Integer> spread = new ArrayList<>(cpusPerProcess);
+        for (List<Integer> free : freeByNode.values()) {
+          spread.addAll(take(free, Math.min(free.size(), cpusPerProcess - spread.size())));
+        }
+        if (spread.size() < cpusPerProcess) {
+          releaseCpus(spread);
+          break;
+        }
+        Collections.sort(spread);
+        placement = new Placement(spread, -1);
+      }
+      leased.addAll(placement.cpus);
+      placements.add(placement);
+    }
+    return new Lease(placements);
+  }
+
+  private static List<Integer> take(List<Integer> free, int count) {
+    List<Integer> taken = new ArrayList<>(free.subList(0, count));
+    free.subList(0, count).clear();
+    return taken;
+  }
+
+  private synchronized void releaseCpus(List<Integer> cpus) {
+    leased.removeAll(cpus);
+  }
+
+  /** CPUs leased to the processes of a run. */
+  final class Lease implements AutoCloseable {
+
+    private final List<Placement> placements;
+
+    private Lease(List<Placement> placements) {
+      this.placements = placements;
+    }
+
+    /**
+     * @param process the index of the process in the run
+     * @return its placement, null if it didn't fit in the free CPUs
+     */
+    Placement get(int process) {
+      return process < placements.size() ? placements.get(process) : null;
+    }
+
+    @Override
+    public void close() {
+      for (Placement placement : placements) {
+        releaseCpus(placement.cpus);
+      }
+    }
+  }
+
+  /** CPUs of a process, and the NUMA node they all belong to, if any. */
+  final class Placement {
+
+    private final List<Integer> cpus;
+    private final int node;
+
+    private Placement(List<Integer> cpus, int node) {
+      this.cpus = cpus;
+      this.node = node;
+    }
+
+    String getCpuList() {
+      return formatCpuList(cpus);
+    }
+
+    /** @return the NUMA node of the CPUs, -1 if they span several nodes or there are none */
+    int getNode() {
+      return node;
+    }
+
+    /** @return the command pinning the process it launches to the CPUs */
+    List<String> launcher() {
+      if (numactl && node >= 0) {
+        return Arrays.asList("numactl", "--physcpubind=" + getCpuList(), "--membind=" + node);
+      }
+      return Arrays.asList("taskset", "-c", getCpuList());
+    }
+  }
+}
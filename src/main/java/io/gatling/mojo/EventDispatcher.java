@@ -0,0 +1,227 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Dispatches fire-and-forget calls to the event scheduler from a background thread, so that slow
+ * event plugins never delay the start or the end of a run. Calls the run depends on, like starting
+ * the session, must stay synchronous.
+ *
+ * <p>Calls are dispatched one at a time, in order. A call dispatched while another with the same
+ * key is still pending replaces it, keeping its place in the queue. When the queue is full, the
+ * oldest pending call is dropped. Calls taking longer than the timeout are interrupted and
+ * abandoned.
+ */
+final class EventDispatcher implements AutoCloseable {
+
+  private final int capacity;
+  private final Duration timeout;
+  private final Log log;
+  private final Map<String, Event> pending = new LinkedHashMap<>();
+  private final ExecutorService worker = Executors.newSingleThreadExecutor(daemon("dispatcher"));
+  private final ExecutorService calls = Executors.newCachedThreadPool(daemon("call"));
+
+  private boolean closed;
+  private long dispatched;
+  private long coalesced;
+  private long dropped;
+  private long timedOut;
+  private long failed;
+  private long totalLatencyNanos;
+  private long maxLatencyNanos;
+
+  /**
+   * @param capacity the maximum number of pending calls
+   * @param timeout the maximum duration of a call, and of the draining of pending calls on close
+   * @param log the log to report slow and failed calls to
+   */
+  EventDispatcher(int capacity, Duration timeout, Log log) {
+    this.capacity = Math.max(1, capacity);
+    this.timeout = timeout;
+    this.log = log;
+  }
+
+  private static ThreadFactory daemon(String name) {
+    return runnable -> {
+      Thread thread = new Thread(runnable, "gatling-event-" + name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Queues a call without waiting for it.
+   *
+   * @param key the key of the call, a pending call with the same key being replaced
+   * @param call the call
+   */
+  synchronized void dispatch(String key, Runnable call) {
+    if (closed) {
+      log.warn("Event " + key + " dispatched after the end of the run, dropping it");
+      return;
+    }
+    Event previous = pending.get(key);
+    if (previous != null) {
+      previous.call = call;
+      coalesced++;
+      return;
+    }
+    if (pending.size() >= capacity) {
+      Iterator<Event> oldest = pending.values().iterator();
+      log.warn("Event queue full, dropping event " + oldest.next().key);
+      oldest.remove();
+      dropped++;
+    }
+    pending.put(key, new Event(key, call));
+    worker.execute(this::dispatchNext);
+  }
+
+  private void dispatchNext() {
+    Event event;
+    synchronized (this) {
+      Iterator<Event> next = pending.values().iterator();
+      if (!next.hasNext()) {
+        // dropped or coalesced
+        return;
+      }
+      event = next.next();
+      next.remove();
+    }
+
+    Future<?> call = calls.submit(event.call);
+    try {
+      call.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      call.cancel(true);
+      log.warn("Event " + event.key + " timed out after " + timeout.toMillis() + "ms");
+      synchronized (this) {
+        timedOut++;
+      }
+      return;
+    } catch (ExecutionException e) {
+      log.warn("Event " + event.key + " failed", e.getCause());
+      synchronized (this) {
+        failed++;
+      }
+      return;
+    } catch (InterruptedException e) {
+      call.cancel(true);
+      Thread.currentThread().interrupt();
+      return;
+    }
+
+    long latencyNanos = System.nanoTime() - event.queuedNanos;
+    synchronized (this) {
+      dispatched++;
+      totalLatencyNanos += latencyNanos;
+      maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+    }
+  }
+
+  synchronized long getDispatched() {
+    return dispatched;
+  }
+
+  synchronized long getCoalesced() {
+    return coalesced;
+  }
+
+  synchronized long getDropped() {
+    return dropped;
+  }
+
+  synchronized long getTimedOut() {
+    return timedOut;
+  }
+
+  synchronized long getFailed() {
+    return failed;
+  }
+
+  /** @return the longest time from queueing a successful call to its completion */
+  synchronized Duration getMaxLatency() {
+    return Duration.ofNanos(maxLatencyNanos);
+  }
+
+  /**
+   * Waits for the pending calls up to the timeout, then drops the remaining ones and logs the
+   * dispatch metrics.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      closed = true;
+    }
+    worker.shutdown();
+    try {
+      if (!worker.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+        synchronized (this) {
+          log.warn("Dropping " + pending.size() + " events not dispatched in time");
+          dropped += pending.size();
+          pending.clear();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      worker.shutdownNow();
+      calls.shutdownNow();
+    }
+
+    synchronized (this) {
+      log.info(
+          "Dispatched "
+              + dispatched
+              + " events to the event scheduler, "
+              + (dispatched == 0 ? 0 : totalLatencyNanos / dispatched / 1_000_000)
+              + "ms on average, "
+              + maxLatencyNanos / 1_000_000
+              + "ms max, "
+              + coalesced
+              + " coalesced, "
+              + dropped
+              + " dropped, "
+              + timedOut
+              + " timed out, "
+              + failed
+              + " failed");
+    }
+  }
+
+  private static final class Event {
+    private final String key;
+    private final long queuedNanos = System.nanoTime();
+    private volatile Runnable call;
+
+    private Event(String key, Runnable call) {
+      this.key = key;
+      this.call = call;
+    }
+  }
+}
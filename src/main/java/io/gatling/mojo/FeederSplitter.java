@@ -0,0 +1,146 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Splits a CSV feeder into slices of about the same size, each with the header of the feeder, so
+ * that every injector process of a sharded run only parses its own slice.
+ *
+ * <p>Record boundaries are found by scanning the memory mapped feeder once, without decoding it,
+ * tracking quotes so that line breaks in quoted values don't split records. Slices are then copied
+ * from the feeder by the operating system, without going through the heap.
+ */
+final class FeederSplitter {
+
+  /** System property giving injector processes the directory of their feeder slices. */
+  static final String FEEDER_SLICE_PROPERTY = "gatling.feederSlice";
+
+  // mapped window, mappings being limited to 2GB
+  private static final long WINDOW = 64L * 1024 * 1024;
+
+  private FeederSplitter() {}
+
+  /**
+   * @param feedersDirectory the directory of the split feeders
+   * @param slices the number of slices feeders were split into
+   * @param slice the index of the slice
+   * @return the directory of the slice, where feeders have the same paths as in the resources
+   */
+  static File sliceDirectory(File feedersDirectory, int slices, int slice) {
+    return new File(new File(feedersDirectory, String.valueOf(slices)), String.valueOf(slice));
+  }
+
+  /**
+   * Finds where the slices of a feeder start and end.
+   *
+   * @param feeder the CSV feeder, with a header
+   * @param slices the number of slices
+   * @return slices + 2 offsets: the end of the header, then the start of every slice, on record
+   *     boundaries, then the size of the feeder
+   * @throws IOException if the feeder can't be read
+   */
+  static long[] boundaries(Path feeder, int slices) throws IOException {
+    long[] boundaries = new long[slices + 2];
+    try (FileChannel channel = FileChannel.open(feeder, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long headerEnd = -1;
+      int next = 2;
+      long target = size;
+      boolean quoted = false;
+
+      for (long position = 0; position < size && next <= slices; position += WINDOW) {
+        MappedByteBuffer window =
+            channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+        for (int i = 0; i < window.limit(); i++) {
+          byte b = window.get(i);
+          if (b == '"') {
+            // escaped quotes toggle twice
+            quoted = !quoted;
+          } else if (b == '\n' && !quoted) {
+            long recordStart = position + i + 1;
+            if (headerEnd < 0) {
+              headerEnd = recordStart;
+              target = headerEnd + (size - headerEnd) / slices;
+            } else if (recordStart >= target) {
+              boundaries[next++] = recordStart;
+              if (next > slices) {
+                break;
+              }
+              target = headerEnd + (size - headerEnd) * (next - 1) / slices;
+            }
+          }
+        }
+      }
+
+      if (headerEnd < 0) {
+        headerEnd = size;
+      }
+      boundaries[0] = headerEnd;
+      boundaries[1] = headerEnd;
+      // slices past the last record are empty
+      for (int i = next; i < boundaries.length; i++) {
+        boundaries[i] = size;
+      }
+    }
+    return boundaries;
+  }
+
+  /**
+   * Splits a feeder into slice files named like it, in one directory per slice.
+   *
+   * @param feeder the CSV feeder, with a header
+   * @param slices the number of slices
+   * @param sliceFile the file of a slice, given its index
+   * @throws IOException if the feeder can't be read or a slice can't be written
+   */
+  static void split(Path feeder, int slices, SliceFile sliceFile) throws IOException {
+    long[] boundaries = boundaries(feeder, slices);
+    try (FileChannel channel = FileChannel.open(feeder, StandardOpenOption.READ)) {
+      for (int i = 0; i < slices; i++) {
+        Path slice = sliceFile.get(i).toPath();
+        Files.createDirectories(slice.getParent());
+        try (FileChannel out =
+            FileChannel.open(
+                slice,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+          transfer(channel, 0, boundaries[0], out);
+          transfer(channel, boundaries[i + 1], boundaries[i + 2], out);
+        }
+      }
+    }
+  }
+
+  private static void transfer(FileChannel in, long start, long end, FileChannel out)
+      throws IOException {
+    for (long position = start; position < end; ) {
+      position += in.transferTo(position, end - position, out);
+    }
+  }
+
+  interface SliceFile {
+    File get(int slice);
+  }
+}
@@ -21,23 +21,36 @@ import io.gatling.plugin.util.ForkMain;
 import io.perfana.eventscheduler.api.SchedulerExceptionHandler;
 import io.perfana.eventscheduler.api.SchedulerExceptionType;
 import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 import java.util.stream.Collectors;
-import org.apache.commons.exec.ExecuteWatchdog;
 
 public final class Fork {
 
@@ -52,10 +65,44 @@ public final class Fork {
     public ForkException(int exitValue) {
       this.exitValue = exitValue;
     }
+
+    public ForkException(int exitValue, String message) {
+      super(message);
+      this.exitValue = exitValue;
+    }
   }
 
+  static final Duration DEFAULT_STOP_GRACE_PERIOD = Duration.ofSeconds(30);
+
   private static final String GATLING_MANIFEST_VALUE = "GATLING_ZINC";
 
+  private static final String JAVA_VERSION_RELEASE_KEY = "JAVA_VERSION=";
+
+  private static final Map<File, Integer> JAVA_VERSIONS = new ConcurrentHashMap<>();
+
+  // first segments only, so that a property is checked with a single lookup
+  private static final Set<String> NON_PROPAGATED_PROPERTY_PREFIXES =
+      new HashSet<>(
+          Arrays.asList(
+              "java.",
+              "sun.",
+              "maven.",
+              "file.",
+              "awt.",
+              "os.",
+              "user.",
+              "idea.",
+              "guice.",
+              "hudson."));
+
+  private static final Set<String> NON_PROPAGATED_PROPERTIES =
+      new HashSet<>(
+          Arrays.asList(
+              "line.separator",
+              "path.separator",
+              "classworlds.conf",
+              "org.slf4j.simpleLogger.defaultLogLevel"));
+
   private final File javaExecutable;
   private final String mainClassName;
   private final List<String> classpath;
@@ -69,8 +116,23 @@ public final class Fork {
   // volatile because possibly multiple threads are involved
   private volatile SchedulerExceptionType schedulerExceptionType = SchedulerExceptionType.NONE;
 
-  private final ExecuteWatchdog gatlingProcessWatchDog =
-      new ExecuteWatchdog(ExecuteWatchdog.INFINITE_TIMEOUT);
+  private volatile Consumer<String> outputConsumer;
+
+  private volatile Duration maxRunDuration = Duration.ZERO;
+
+  private volatile Duration stopGracePeriod = DEFAULT_STOP_GRACE_PERIOD;
+
+  private volatile Process process;
+
+  private volatile boolean timedOut;
+
+  private volatile File stopFile;
+
+  private volatile File resourceSamples;
+
+  private volatile Duration samplingInterval;
+
+  private volatile List<String> launcher = Collections.emptyList();
 
   private final SchedulerExceptionHandler schedulerExceptionHandler =
       new SchedulerExceptionHandler() {
@@ -78,21 +140,21 @@ public final class Fork {
         public void kill(String message) {
           log.info("Killing running process, message: " + message);
           schedulerExceptionType = SchedulerExceptionType.KILL;
-          gatlingProcessWatchDog.destroyProcess();
+          destroyProcessTree(process);
         }
 
         @Override
         public void abort(String message) {
           log.info("Killing running process, message: " + message);
           schedulerExceptionType = SchedulerExceptionType.ABORT;
-          gatlingProcessWatchDog.destroyProcess();
+          destroyProcessTree(process);
         }
 
         @Override
         public void stop(String message) {
           log.info("Stop running process, message: " + message);
           schedulerExceptionType = SchedulerExceptionType.STOP;
-          gatlingProcessWatchDog.destroyProcess();
+          requestStop(process);
         }
       };
 
@@ -120,6 +182,162 @@ public final class Fork {
     return schedulerExceptionHandler;
   }
 
+  /**
+   * Streams the merged output of the forked process, line by line, to the given consumer instead
+   * of inheriting the console of the current process.
+   *
+   * @param outputConsumer the consumer of the output lines
+   * @return this fork
+   */
+  Fork redirectOutput(Consumer<String> outputConsumer) {
+    this.outputConsumer = outputConsumer;
+    return this;
+  }
+
+  /**
+   * Stops the forked process once it has run for the given duration, like an event scheduler stop
+   * would.
+   *
+   * @param maxRunDuration the maximum duration, zero for no limit
+   * @return this fork
+   */
+  Fork maxRunDuration(Duration maxRunDuration) {
+    this.maxRunDuration = maxRunDuration;
+    return this;
+  }
+
+  /** @return true if the process was stopped for exceeding its maximum run duration */
+  boolean isTimedOut() {
+    return timedOut;
+  }
+
+  /**
+   * Sets how long a stopped process may take to flush its results and exit before it's killed.
+   *
+   * @param stopGracePeriod the grace period
+   * @return this fork
+   */
+  Fork stopGracePeriod(Duration stopGracePeriod) {
+    this.stopGracePeriod = stopGracePeriod;
+    return this;
+  }
+
+  /**
+   * Samples the CPU, memory, thread, context switch and I/O usage of the forked process while it
+   * runs, on hosts that provide {@literal /proc}.
+   *
+   * @param resourceSamples the CSV file to write the samples to
+   * @param samplingInterval the sampling interval
+   * @return this fork
+   */
+  Fork sampleResources(File resourceSamples, Duration samplingInterval) {
+    this.resourceSamples = resourceSamples;
+    this.samplingInterval = samplingInterval;
+    return this;
+  }
+
+  /**
+   * Starts the JVM through a launcher command, e.g. to pin it to some CPUs. The launcher must
+   * replace itself with the JVM, so that the started process is the JVM itself.
+   *
+   * @param launcher the launcher command and its arguments, the JVM command line being appended
+   * @return this fork
+   */
+  Fork launchWith(List<String> launcher) {
+    this.launcher = Collections.unmodifiableList(launcher);
+    return this;
+  }
+
+  /**
+   * Runs the main class through {@link ForkControl}, so that stops are first requested through a
+   * stop file the forked process watches, letting the simulation end cleanly and generate its
+   * reports. The process is only terminated if it's still alive after the grace period, so this is
+   * only meant for simulations polling the stop request. Ignored on JDKs older than 11, which can't
+   * load {@link ForkControl}.
+   *
+   * @return this fork
+   * @throws IOException if the stop file can't be allocated
+   */
+  Fork withStopChannel() throws IOException {
+    File file = File.createTempFile("gatlingstop", ".flag");
+    Files.delete(file.toPath());
+    file.deleteOnExit();
+    this.stopFile = file;
+    return this;
+  }
+
+  private void requestStop(Process process) {
+    File stopFile = this.stopFile;
+    if (process == null || stopFile == null) {
+      stopProcess(process);
+      return;
+    }
+    try {
+      Files.createFile(stopFile.toPath());
+    } catch (FileAlreadyExistsException e) {
+      // already requested
+      return;
+    } catch (IOException e) {
+      log.error("Could not request the process to stop: " + e.getMessage());
+      stopProcess(process);
+      return;
+    }
+    CompletableFuture.delayedExecutor(stopGracePeriod.toMillis(), TimeUnit.MILLISECONDS)
+        .execute(
+            () -> {
+              if (process.isAlive()) {
+                log.error(
+                    "Process didn't end within "
+                        + format(stopGracePeriod)
+                        + " of the stop request, terminating it");
+                stopProcess(process);
+              }
+            });
+  }
+
+  /**
+   * Asks the process to terminate, which lets Gatling flush the simulation log and write the
+   * reports in its shutdown hooks, then kills it with all its descendants if it's still alive after
+   * the grace period. On Windows, processes can't be asked to terminate and are killed at once.
+   */
+  private void stopProcess(Process process) {
+    if (process == null) {
+      // not started yet, run() checks the scheduler exception type once it is
+      return;
+    }
+    List<ProcessHandle> descendants = process.descendants().collect(Collectors.toList());
+    process.destroy();
+    CompletableFuture.delayedExecutor(stopGracePeriod.toMillis(), TimeUnit.MILLISECONDS)
+        .execute(
+            () -> {
+              if (process.isAlive() || descendants.stream().anyMatch(ProcessHandle::isAlive)) {
+                log.error(
+                    "Process didn't stop within "
+                        + format(stopGracePeriod)
+                        + ", killing it with all its child processes");
+                destroyProcessTree(process, descendants);
+              }
+            });
+  }
+
+  private void destroyProcessTree(Process process) {
+    if (process != null) {
+      destroyProcessTree(process, process.descendants().collect(Collectors.toList()));
+    }
+  }
+
+  // children are listed before the parent dies, as they are reparented afterwards
+  private static void destroyProcessTree(Process process, List<ProcessHandle> descendants) {
+    process.destroyForcibly();
+    descendants.forEach(ProcessHandle::destroyForcibly);
+  }
+
+  private static String format(Duration duration) {
+    return duration.toMillis() % 1000 == 0
+        ? duration.getSeconds() + "s"
+        : duration.toMillis() + "ms";
+  }
+
   private static String toWindowsShortName(String value) {
     if (IS_WINDOWS) {
       int programFilesIndex = value.indexOf("Program Files");
@@ -220,9 +438,12 @@ public final class Fork {
   }
 
   public void run() throws Exception {
-    List<String> command = new ArrayList<>(jvmArgs.size() + 5);
-    command.add(toWindowsShortName(javaExecutable.getCanonicalPath()));
-    command.addAll(jvmArgs);
+    if (stopFile != null && !supportsStopChannel(javaExecutable)) {
+      log.error("The stop channel requires JDK 11+, stopping " + javaExecutable + " with signals");
+      stopFile = null;
+    }
+    boolean useArgFile = supportsArgFiles(javaExecutable);
+    List<String> jvmOptions = new ArrayList<>(jvmArgs);
 
     if (propagateSystemProperties) {
       for (Entry<Object, Object> systemProp : System.getProperties().entrySet()) {
@@ -237,7 +458,7 @@ public final class Fork {
                     + value
                     + "') has a name that contains a whitespace and can't be propagated");
 
-          } else if (IS_WINDOWS && value.contains(" ")) {
+          } else if (IS_WINDOWS && !useArgFile && value.contains(" ")) {
             log.error(
                 "System property ("
                     + name
@@ -246,22 +467,212 @@ public final class Fork {
                     + "') has a value that contains a whitespace and can't be propagated on Windows");
 
           } else {
-            command.add("-D" + name + "=" + safe(escape(value)));
+            // the argument file quotes every argument itself
+            jvmOptions.add("-D" + name + "=" + (useArgFile ? escape(value) : safe(escape(value))));
           }
         }
       }
     }
 
+    if (stopFile != null) {
+      jvmOptions.add("-D" + ForkControl.STOP_FILE_PROPERTY + "=" + stopFile);
+      jvmOptions.add("-D" + ForkControl.MAIN_CLASS_PROPERTY + "=" + mainClassName);
+    }
+
+    List<String> command = new ArrayList<>(launcher.size() + jvmOptions.size() + 5);
+    command.addAll(launcher);
+    command.add(toWindowsShortName(javaExecutable.getCanonicalPath()));
+    File argFile = null;
+    if (useArgFile) {
+      argFile = createArgFile(jvmOptions);
+      command.add("@" + argFile.getCanonicalPath());
+    } else {
+      command.addAll(jvmOptions);
+    }
     command.add("-jar");
     command.add(createBooterJar(classpath, args).getCanonicalPath());
-    command.add(mainClassName);
+    command.add(stopFile != null ? ForkControl.class.getName() : mainClassName);
+
+    try {
+      execute(command);
+    } finally {
+      if (argFile != null) {
+        Files.deleteIfExists(argFile.toPath());
+      }
+    }
+  }
+
+  private void execute(List<String> command) throws Exception {
+    ProcessBuilder processBuilder = new ProcessBuilder(command).directory(workingDirectory);
+    if (outputConsumer == null) {
+      processBuilder.inheritIO();
+    } else {
+      processBuilder.redirectErrorStream(true);
+    }
+    Process process = processBuilder.start();
+    this.process = process;
+    switch (schedulerExceptionType) {
+      case KILL:
+      case ABORT:
+        destroyProcessTree(process);
+        break;
+      case STOP:
+        requestStop(process);
+        break;
+      default:
+        break;
+    }
+    if (!maxRunDuration.isZero()) {
+      CompletableFuture.delayedExecutor(maxRunDuration.toMillis(), TimeUnit.MILLISECONDS)
+          .execute(
+              () -> {
+                if (process.isAlive()) {
+                  timedOut = true;
+                  log.error(
+                      "Process exceeded the maximum run duration of "
+                          + format(maxRunDuration)
+                          + ", stopping it");
+                  requestStop(process);
+                }
+              });
+    }
+    ProcessSampler sampler = null;
+    if (resourceSamples != null && ProcessSampler.isSupported()) {
+      sampler =
+          new ProcessSampler(process.pid(), resourceSamples.toPath(), samplingInterval, log)
+              .start();
+    }
+    try {
+      waitFor(process);
+    } finally {
+      if (sampler != null) {
+        sampler.close();
+      }
+    }
+  }
 
-    Process process = new ProcessBuilder(command).directory(workingDirectory).inheritIO().start();
+  private void waitFor(Process process) throws Exception {
     process.getOutputStream().close();
+    if (outputConsumer != null) {
+      try (BufferedReader reader =
+          new BufferedReader(
+              new InputStreamReader(process.getInputStream(), Charset.defaultCharset()))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          outputConsumer.accept(line);
+        }
+      }
+    }
     int exitValue = process.waitFor();
+    if (stopFile != null) {
+      Files.deleteIfExists(stopFile.toPath());
+    }
+    if (timedOut) {
+      throw new ForkException(
+          exitValue,
+          "Process exceeded the maximum run duration of " + format(maxRunDuration));
+    }
     if (exitValue != 0) {
-      throw new io.gatling.plugin.util.Fork.ForkException(exitValue);
+      throw new ForkException(exitValue);
+    }
+  }
+
+  /**
+   * Tells if a java executable supports {@literal @argfiles}, i.e. is from JDK 9 or later, based on
+   * the release file of its image.
+   */
+  static boolean supportsArgFiles(File javaExecutable) {
+    return javaMajorVersion(javaExecutable) >= 9;
+  }
+
+  /** Tells if a java executable can run {@link ForkControl}, compiled for JDK 11. */
+  static boolean supportsStopChannel(File javaExecutable) {
+    return javaMajorVersion(javaExecutable) >= 11;
+  }
+
+  /** @return the major version of a java executable, 8 when unknown */
+  static int javaMajorVersion(File javaExecutable) {
+    return JAVA_VERSIONS.computeIfAbsent(javaExecutable, Fork::readJavaMajorVersion);
+  }
+
+  private static int readJavaMajorVersion(File javaExecutable) {
+    File executable;
+    try {
+      // e.g. /usr/bin/java, linked to the actual JDK by the alternatives system
+      executable = javaExecutable.toPath().toRealPath().toFile();
+    } catch (IOException e) {
+      executable = javaExecutable.getAbsoluteFile();
+    }
+    File bin = executable.getParentFile();
+    File home = bin != null ? bin.getParentFile() : null;
+    if (home == null) {
+      return 8;
+    }
+    try {
+      for (String line :
+          Files.readAllLines(new File(home, "release").toPath(), StandardCharsets.ISO_8859_1)) {
+        if (line.startsWith(JAVA_VERSION_RELEASE_KEY)) {
+          String version =
+              line.substring(JAVA_VERSION_RELEASE_KEY.length()).replace("\"", "").trim();
+          // 1.8.0_x and older, 9, 11.0.x, 17-ea and later
+          if (version.startsWith("1.")) {
+            version = version.substring(2);
+          }
+          int end = 0;
+          while (end < version.length() && Character.isDigit(version.charAt(end))) {
+            end++;
+          }
+          return end == 0 ? 8 : Integer.parseInt(version.substring(0, end));
+        }
+      }
+    } catch (IOException e) {
+      // JDK 8 JREs have no release file of their own
     }
+    return 8;
+  }
+
+  /**
+   * Writes JVM options to an argument file, which isn't subject to the command line length limits
+   * of the OS.
+   */
+  private static File createArgFile(List<String> jvmOptions) throws IOException {
+    File file = File.createTempFile("gatlingargs", ".txt");
+    file.deleteOnExit();
+    try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), Charset.defaultCharset())) {
+      for (String option : jvmOptions) {
+        writer.write(quoteArgFileArgument(option));
+        writer.newLine();
+      }
+    }
+    return file;
+  }
+
+  // quoted, with the escape sequences the java launcher expands in quoted arguments
+  static String quoteArgFileArgument(String argument) {
+    StringBuilder buffer = new StringBuilder(argument.length() + 2).append('"');
+    for (char ch : argument.toCharArray()) {
+      switch (ch) {
+        case '\\':
+          buffer.append("\\\\");
+          break;
+        case '"':
+          buffer.append("\\\"");
+          break;
+        case '\n':
+          buffer.append("\\n");
+          break;
+        case '\r':
+          buffer.append("\\r");
+          break;
+        case '\t':
+          buffer.append("\\t");
+          break;
+        default:
+          buffer.append(ch);
+          break;
+      }
+    }
+    return buffer.append('"').toString();
   }
 
   /**
@@ -320,20 +731,12 @@ public final class Fork {
     }
   }
 
-  private boolean isPropagatableProperty(String name) {
-    return !name.startsWith("java.") //
-        && !name.startsWith("sun.") //
-        && !name.startsWith("maven.") //
-        && !name.startsWith("file.") //
-        && !name.startsWith("awt.") //
-        && !name.startsWith("os.") //
-        && !name.startsWith("user.") //
-        && !name.startsWith("idea.") //
-        && !name.startsWith("guice.") //
-        && !name.startsWith("hudson.") //
-        && !name.equals("line.separator") //
-        && !name.equals("path.separator") //
-        && !name.equals("classworlds.conf") //
-        && !name.equals("org.slf4j.simpleLogger.defaultLogLevel");
+  private static boolean isPropagatableProperty(String name) {
+    int firstDot = name.indexOf('.');
+    if (firstDot >= 0
+        && NON_PROPAGATED_PROPERTY_PREFIXES.contains(name.substring(0, firstDot + 1))) {
+      return false;
+    }
+    return !NON_PROPAGATED_PROPERTIES.contains(name);
   }
 }
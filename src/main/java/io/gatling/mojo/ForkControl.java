@@ -0,0 +1,86 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Main class of forked Gatling processes with a stop channel: it watches the stop file given by
+ * the Maven side, then runs the actual main class.
+ *
+ * <p>Once the stop file appears, {@link #isStopRequested()} and the {@value
+ * #STOP_REQUESTED_PROPERTY} system property turn true, so that simulations can end injection
+ * cleanly and still get their simulation log flushed and their reports generated, e.g. with this
+ * step in their scenarios:
+ *
+ * <pre>{@code
+ * stopInjectorIf("stop requested", session -> Boolean.getBoolean("gatling.stopRequested"))
+ * }</pre>
+ */
+public final class ForkControl {
+
+  public static final String STOP_REQUESTED_PROPERTY = "gatling.stopRequested";
+
+  static final String STOP_FILE_PROPERTY = "gatling.fork.stopFile";
+  static final String MAIN_CLASS_PROPERTY = "gatling.fork.mainClass";
+
+  private static final long POLL_INTERVAL_MILLIS = 100;
+
+  private static volatile boolean stopRequested;
+
+  private ForkControl() {}
+
+  /** @return true once the Maven side has asked the run to stop */
+  public static boolean isStopRequested() {
+    return stopRequested;
+  }
+
+  public static void main(String[] args) throws Throwable {
+    String stopFile = System.getProperty(STOP_FILE_PROPERTY);
+    if (stopFile != null) {
+      Thread watcher = new Thread(() -> watch(Paths.get(stopFile)), "gatling-stop-watcher");
+      watcher.setDaemon(true);
+      watcher.start();
+    }
+
+    Class<?> mainClass =
+        Thread.currentThread()
+            .getContextClassLoader()
+            .loadClass(System.getProperty(MAIN_CLASS_PROPERTY));
+    try {
+      mainClass.getMethod("main", String[].class).invoke(null, (Object) args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  // polling a single path is cheaper than a WatchService on the shared temporary directory
+  private static void watch(Path stopFile) {
+    try {
+      while (!Files.exists(stopFile)) {
+        Thread.sleep(POLL_INTERVAL_MILLIS);
+      }
+      System.setProperty(STOP_REQUESTED_PROPERTY, "true");
+      stopRequested = true;
+      System.out.println("Stop requested, ending the run");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
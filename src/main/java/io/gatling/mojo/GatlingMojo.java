@@ -22,7 +22,6 @@ import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static java.util.Arrays.stream;
 import static org.codehaus.plexus.util.StringUtils.isBlank;
 
-import io.gatling.plugin.GatlingConstants;
 import io.perfana.eventscheduler.EventScheduler;
 import io.perfana.eventscheduler.EventSchedulerBuilder;
 import io.perfana.eventscheduler.api.EventLogger;
@@ -43,7 +42,13 @@ import java.net.URLClassLoader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
@@ -55,6 +60,7 @@ import org.apache.maven.project.MavenProject;
 import org.apache.maven.toolchain.Toolchain;
 import org.codehaus.plexus.util.DirectoryScanner;
 import org.codehaus.plexus.util.ExceptionUtils;
+import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.SelectorUtils;
 
 /** Mojo to execute Gatling. */
@@ -65,8 +71,20 @@ import org.codehaus.plexus.util.SelectorUtils;
     requiresDependencyResolution = ResolutionScope.TEST)
 public final class GatlingMojo extends AbstractGatlingExecutionMojo {
 
+  private static final String FORK_RESULTS_FOLDER_PREFIX = ".fork-";
+
+  private static final String INJECTOR_SAMPLES_FILE = "injector.csv";
+
+  private static final String PROFILE_JFR = "jfr";
+
   private final Object eventSchedulerLock = new Object();
+  // guarded by eventSchedulerLock
+  private boolean sessionEndClaimed;
   private EventScheduler eventScheduler;
+  private EventDispatcher eventDispatcher;
+  private final Set<File> deferredReportRunDirectories = new HashSet<>();
+  private final List<Future<Void>> deferredReports = new ArrayList<>();
+  private ExecutorService reportsExecutor;
 
   /** A name of a Simulation class to run. */
   @Parameter(property = "gatling.simulationClass")
@@ -92,6 +110,60 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
   @Parameter(property = "gatling.noReports", defaultValue = "false")
   private boolean noReports;
 
+  /**
+   * Run simulations without reports, then generate the reports in the background, overlapping
+   * with the SLA checks, the JUnit reports and the event scheduler checks instead of delaying
+   * them. By default false.
+   */
+  @Parameter(property = "gatling.overlapReports", defaultValue = "false")
+  private boolean overlapReports;
+
+  /**
+   * Run simulations back-to-back without reports, and generate the reports of every finished run
+   * in the background, at low priority on Unix, while the next simulations run. The goal only
+   * waits for the reports at the end. By default false.
+   */
+  @Parameter(property = "gatling.backgroundReports", defaultValue = "false")
+  private boolean backgroundReports;
+
+  /**
+   * Size the heap of the processes generating reports for the simulation logs of the run, from a
+   * sampled scan of their size and request names. When the reports can't fit in the memory of the
+   * host, the summaries of summaryReports are written instead. By default, the heap is sized unless
+   * the JVM args set an explicit -Xmx. Set to true to replace an explicit -Xmx too, or to false to
+   * keep the JVM args as is.
+   */
+  @Parameter(property = "gatling.reports.autoSizeHeap")
+  private Boolean autoSizeReportHeap;
+
+  /**
+   * Number of local injector processes each simulation is sharded across. Every shard gets the
+   * {@literal gatling.shard.index} and {@literal gatling.shard.count} system properties so the
+   * simulation can divide its injection rates and feeders, and their simulation logs are combined
+   * into a single report. By default 1, meaning no sharding.
+   */
+  @Parameter(property = "gatling.shards", defaultValue = "1")
+  private int shards;
+
+  /**
+   * Injector agents, as {@literal host:port}, to shard each simulation across instead of running
+   * it locally. Agents are started on the injector hosts with {@literal java -cp <plugin classpath>
+   * io.gatling.mojo.InjectorAgent [port]}, and their clocks are expected to be synchronized.
+   */
+  @Parameter(property = "gatling.remoteInjectors")
+  private List<String> remoteInjectors;
+
+  /**
+   * Token shared with the injector agents, which only accept coordinators proving they know it. By
+   * default, the GATLING_AGENT_TOKEN environment variable the agents read it from too.
+   */
+  @Parameter(property = "gatling.remoteInjectorToken", defaultValue = "${env.GATLING_AGENT_TOKEN}")
+  private String remoteInjectorToken;
+
+  /** Delay in seconds between shipping the classpath to the injector agents and the start. */
+  @Parameter(property = "gatling.remoteStartDelay", defaultValue = "5")
+  private int remoteStartDelay;
+
   /** Generate the reports for the simulation in this folder. */
   @Parameter(property = "gatling.reportsOnly")
   private String reportsOnly;
@@ -116,9 +188,46 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
   @Parameter(property = "gatling.continueOnAssertionFailure", defaultValue = "false")
   private boolean continueOnAssertionFailure;
 
+  /**
+   * Per request service level agreements, checked against the runs once they complete. Violations
+   * fail the build like assertion failures, or are recorded for the verify goal when failOnError is
+   * false.
+   */
+  @Parameter private List<Sla> slas;
+
   @Parameter(property = "gatling.useOldJenkinsJUnitSupport", defaultValue = "false")
   private boolean useOldJenkinsJUnitSupport;
 
+  /**
+   * Write a JUnit XML report per run with one test case per request, and its response time
+   * percentiles and throughput as properties, to junitReportsDirectory.
+   */
+  @Parameter(property = "gatling.junitReports", defaultValue = "false")
+  private boolean junitReports;
+
+  /**
+   * Write a summary.json and a summary.md file in every run directory, with the count, throughput,
+   * errors and response time percentiles of every request. Computed in a single streaming pass
+   * over the simulation logs, they're a fast alternative to the HTML reports for CI gates when
+   * combined with noReports.
+   */
+  @Parameter(property = "gatling.summaryReports", defaultValue = "false")
+  private boolean summaryReports;
+
+  /**
+   * Gzip the simulation logs of the runs once their reports are generated, in a single streaming
+   * pass at the fastest level. The verify, merge and reportsOnly flows read compressed logs
+   * transparently. By default false.
+   */
+  @Parameter(property = "gatling.compressSimulationLogs", defaultValue = "false")
+  private boolean compressSimulationLogs;
+
+  /** Directory where the JUnit XML reports of the runs are written. */
+  @Parameter(
+      property = "gatling.junitReportsDirectory",
+      defaultValue = "${project.build.directory}/gatling-junit")
+  private File junitReportsDirectory;
+
   /** Extra JVM arguments to pass when running Gatling. */
   @Parameter(property = "gatling.jvmArgs")
   private List<String> jvmArgs;
@@ -137,20 +246,177 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
       defaultValue = "${project.basedir}/src/test/resources")
   private File resourcesFolder;
 
+  /**
+   * Directory of the feeder slices written by the split-feeders goal. When feeders were split into
+   * as many slices as there are shards, every shard loads its own slice of them.
+   */
+  @Parameter(
+      property = "gatling.feeders.directory",
+      defaultValue = "${project.build.directory}/gatling-feeders")
+  private File feedersDirectory;
+
   @Parameter(defaultValue = "${plugin.artifacts}", readonly = true)
   private List<Artifact> artifacts;
 
+  /**
+   * Maximum duration of a Gatling run, in seconds. Once expired, the run is stopped like on an
+   * event scheduler stop and fails. By default 0, meaning unlimited.
+   */
+  @Parameter(property = "gatling.maxRunDuration", defaultValue = "0")
+  private long maxRunDuration;
+
+  /**
+   * Time, in seconds, given to a stopped Gatling process to flush its simulation log and write its
+   * reports once terminated, before it's killed along with all its child processes. With the stop
+   * channel, it's first given as much time to end its run.
+   */
+  @Parameter(property = "gatling.stopGracePeriod", defaultValue = "30")
+  private long stopGracePeriod;
+
+  /**
+   * Notify stopped simulations through the gatling.stopRequested system property, instead of
+   * terminating them right away, so that they can end injection cleanly. Only enable it for
+   * simulations polling that property, others being terminated after the grace period anyway.
+   * Requires a JDK 11+ toolchain. By default false.
+   */
+  @Parameter(property = "gatling.stopChannel", defaultValue = "false")
+  private boolean stopChannel;
+
+  /**
+   * Interval, in milliseconds, at which the CPU, memory, thread, context switch and I/O usage of
+   * local injector processes is sampled into an injector.csv file of their run directory, on Linux.
+   * A warning is logged when an injector is CPU saturated. By default 0, meaning no sampling.
+   */
+  @Parameter(property = "gatling.injectorSamplingInterval", defaultValue = "0")
+  private long injectorSamplingInterval;
+
+  /**
+   * Maximum number of injector processes forked at the same time across all the modules of a
+   * parallel build, other runs wait for a free slot. A sharded run takes one slot per shard, up to
+   * all of them. The first execution of the build that sets a limit sets it for the whole build.
+   * By default 0, meaning unlimited.
+   */
+  @Parameter(property = "gatling.reactor.maxConcurrentForks", defaultValue = "0")
+  private int maxConcurrentForks;
+
+  /**
+   * Weigh injector processes by CPU instead of by count: the build then has one slot per core of
+   * the host, and every injector process takes this many. 0 disables CPU weighting.
+   */
+  @Parameter(property = "gatling.reactor.forkCpus", defaultValue = "0")
+  private int forkCpus;
+
+  /**
+   * Pin local injector processes to disjoint sets of CPUs on Linux, with taskset, or numactl to
+   * also bind their memory when the host has several NUMA nodes. Every process gets forkCpus CPUs
+   * if set, otherwise an equal share of the CPUs among maxConcurrentForks processes, or among the
+   * shards of a run. Processes that don't fit in the free CPUs aren't pinned.
+   */
+  @Parameter(property = "gatling.cpuAffinity", defaultValue = "false")
+  private boolean cpuAffinity;
+
+  /**
+   * Run local injector processes one at a time across all the builds of the host, e.g. concurrent
+   * CI pipelines on the same agent, by locking hostLockFile. The time spent waiting for the lock is
+   * recorded as queueTimeMillis in the run.properties file of the run directory.
+   */
+  @Parameter(property = "gatling.hostLock", defaultValue = "false")
+  private boolean hostLock;
+
+  /** File locked by runs when hostLock is enabled, shared by all the builds of the host. */
+  @Parameter(
+      property = "gatling.hostLockFile",
+      defaultValue = "${java.io.tmpdir}/gatling-maven-plugin.lock")
+  private File hostLockFile;
+
+  /**
+   * Maximum time, in seconds, to wait for the host lock before failing the run. By default 0,
+   * meaning no limit.
+   */
+  @Parameter(property = "gatling.hostLockTimeout", defaultValue = "0")
+  private long hostLockTimeout;
+
   /** Specify a different working directory. */
   @Parameter(property = "gatling.workingDirectory")
   private File workingDirectory;
 
-  private Set<File> existingRunDirectories;
+  /**
+   * Keep at most this many run directories in the results folder, older ones are archived. By
+   * default 0, meaning unlimited.
+   */
+  @Parameter(property = "gatling.retention.maxRuns", defaultValue = "0")
+  private int retentionMaxRuns;
+
+  /**
+   * Archive run directories older than this many days. By default 0, meaning they never expire.
+   */
+  @Parameter(property = "gatling.retention.maxAgeDays", defaultValue = "0")
+  private int retentionMaxAgeDays;
+
+  /**
+   * Archive the oldest run directories once the results folder grows beyond this many megabytes.
+   * By default 0, meaning unlimited.
+   */
+  @Parameter(property = "gatling.retention.maxSizeMb", defaultValue = "0")
+  private long retentionMaxSizeMb;
+
+  /**
+   * Compress expired run directories into the archive folder of the results folder. When false,
+   * expired run directories are deleted. By default true.
+   */
+  @Parameter(property = "gatling.retention.archive", defaultValue = "true")
+  private boolean retentionArchive;
+
+  /**
+   * Append a summary of every run, with per request percentiles, throughput and error ratio, to
+   * the trend store in this directory. It should live outside the build directory so that it
+   * survives clean builds. No summary is recorded when not set.
+   */
+  @Parameter(property = "gatling.trends.directory")
+  private File trendsDirectory;
+
+  /** Revision recorded with the run summaries. By default the checked out git commit. */
+  @Parameter(property = "gatling.trends.revision")
+  private String trendsRevision;
+
+  /**
+   * Profile the injector of local runs. The only supported value is jfr: a Flight Recorder
+   * recording, injector.jfr, and its summary, injector-jfr.txt, with GC pauses, allocation rate,
+   * safepoint time and hottest frames, are stored in the run directory. Sharded runs store one
+   * injector-shard-N.jfr recording and injector-shard-N-jfr.txt summary per shard. Remote injectors
+   * aren't profiled.
+   */
+  @Parameter(property = "gatling.profile")
+  private String profile;
+
+  private final Set<File> newRunDirectories = new LinkedHashSet<>();
+  // the results of the runs were recorded, the ones needing the reports are left to execute()
+  private boolean resultsRecorded;
+
+  // statistics of the new runs, computed once for all the summaries that need them
+  private final Map<File, SimulationStatistics> runStatistics = new HashMap<>();
 
   @Parameter(defaultValue = "${project}", readonly = true)
   private MavenProject project;
 
   @Parameter EventSchedulerConfig eventSchedulerConfig;
 
+  /**
+   * Maximum number of event scheduler messages waiting to be dispatched. Fire-and-forget messages,
+   * like the test run configuration, are dispatched in the background, so that slow event plugins
+   * don't delay runs, and the oldest are dropped when full. The session is started and ended
+   * synchronously.
+   */
+  @Parameter(property = "gatling.eventDispatch.queueSize", defaultValue = "100")
+  private int eventDispatchQueueSize;
+
+  /**
+   * Time, in seconds, after which an event scheduler call is abandoned, and given to the pending
+   * calls to be dispatched once the runs are done.
+   */
+  @Parameter(property = "gatling.eventDispatch.timeout", defaultValue = "30")
+  private long eventDispatchTimeout;
+
   private boolean isEventSchedulerEnabled = false;
 
   /** This is the list of projects currently slated to be built by Maven. */
@@ -160,6 +426,31 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
   /** Executes Gatling simulations. */
   @Override
   public void execute() throws MojoExecutionException, MojoFailureException {
+    Exception reportsFailure;
+    try {
+      executeSimulations();
+    } finally {
+      // the outcome of the runs, if failed, prevails
+      reportsFailure = awaitDeferredReports();
+      if (reportsExecutor != null) {
+        reportsExecutor.shutdown();
+      }
+      if (compressSimulationLogs) {
+        compressSimulationLogs();
+      }
+      if (resultsRecorded) {
+        recordReportedResults();
+      }
+    }
+    if (reportsFailure != null) {
+      if (failOnError) {
+        throw new MojoExecutionException("Gatling reports generation failed.", reportsFailure);
+      }
+      getLog().warn("Gatling reports generation failed: " + reportsFailure.getMessage());
+    }
+  }
+
+  private void executeSimulations() throws MojoExecutionException, MojoFailureException {
     checkPluginPreConditions();
 
     if (skip) {
@@ -167,6 +458,16 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
       return;
     }
 
+    if (shards < 1) {
+      throw new MojoExecutionException("gatling.shards must be at least 1, got " + shards);
+    }
+    if (remoteInjectors != null
+        && !remoteInjectors.isEmpty()
+        && (remoteInjectorToken == null || remoteInjectorToken.isEmpty())) {
+      throw new MojoExecutionException(
+          "gatling.remoteInjectorToken is required to connect to injector agents");
+    }
+
     getLog().debug(">>> Start execute: " + eventSchedulerConfig);
 
     boolean abortEventScheduler = false;
@@ -175,13 +476,22 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
         eventSchedulerConfig != null && eventSchedulerConfig.isSchedulerEnabled();
     eventScheduler =
         isEventSchedulerEnabled ? createEventScheduler(eventSchedulerConfig, getLog()) : null;
+    eventDispatcher =
+        eventScheduler != null
+            ? new EventDispatcher(
+                eventDispatchQueueSize, Duration.ofSeconds(eventDispatchTimeout), getLog())
+            : null;
+
+    if (profile != null && !isJfrProfile()) {
+      throw new MojoExecutionException(
+          "Unsupported gatling.profile " + profile + ", only jfr is supported");
+    }
 
     // Create results directories
     if (!resultsFolder.exists() && !resultsFolder.mkdirs()) {
       throw new MojoExecutionException(
           "Could not create resultsFolder " + resultsFolder.getAbsolutePath());
     }
-    existingRunDirectories = runDirectories();
     Exception ex = null;
 
     try {
@@ -198,11 +508,30 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
       }
 
       if (reportsOnly != null) {
-        executeGatling(jvmArgs, gatlingArgs(null), testClasspath, toolchain);
+        File runDirectory = new File(resultsFolder, reportsOnly);
+        // Gatling only reads plain logs
+        List<Path> decompressed = SimulationLog.decompress(runDirectory);
+        try {
+          List<String> reportJvmArgs = reportJvmArgs(jvmArgs, runDirectory);
+          if (reportJvmArgs != null) {
+            executeGatling(reportJvmArgs, gatlingArgs(null), testClasspath, toolchain, null, null);
+          }
+        } finally {
+          for (Path log : decompressed) {
+            Files.deleteIfExists(log);
+          }
+        }
 
       } else {
         List<String> simulations = simulations();
-        iterateBySimulations(toolchain, jvmArgs, testClasspath, simulations);
+        try {
+          iterateBySimulations(toolchain, jvmArgs, testClasspath, simulations);
+        } finally {
+          if (isDeferringReports()) {
+            generateReportsInBackground(jvmArgs, testClasspath, toolchain);
+          }
+        }
+        checkSlas();
       }
 
     } catch (Exception e) {
@@ -234,26 +563,28 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
       }
     } finally {
       recordSimulationResults(ex);
+      if (eventDispatcher != null) {
+        // pending calls go first, within the timeout
+        eventDispatcher.close();
+      }
       if (eventScheduler != null) {
-        synchronized (eventSchedulerLock) {
-          if (abortEventScheduler && !eventScheduler.isSessionStopped()) {
-            getLog().debug(">>> Abort is called in finally: abortEventScheduler is true");
-            // implicit stop session
-            eventScheduler.abortSession();
-          } else {
-            getLog()
-                .debug(
-                    ">>> No abort called: "
-                        + "abort event scheduler is "
-                        + abortEventScheduler
-                        + ", stop is already called is "
-                        + eventScheduler.isSessionStopped());
-          }
+        if (abortEventScheduler && claimSessionEnd(eventScheduler)) {
+          getLog().debug(">>> Abort is called in finally: abortEventScheduler is true");
+          // implicit stop session
+          eventScheduler.abortSession();
+        } else {
+          getLog()
+              .debug(
+                  ">>> No abort called: "
+                      + "abort event scheduler is "
+                      + abortEventScheduler
+                      + ", stop is already called is "
+                      + eventScheduler.isSessionStopped());
         }
       }
     }
 
-    if (eventScheduler != null && !eventScheduler.isSessionStopped()) {
+    if (eventScheduler != null && claimSessionEnd(eventScheduler)) {
       getLog().debug(">>> Stop session (because not isSessionStopped())");
       eventScheduler.stopSession();
       try {
@@ -294,20 +625,36 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
 
   private void startScheduler(EventScheduler scheduler, SchedulerExceptionHandler handler) {
     scheduler.addKillSwitch(handler);
+    // the event plugins may gate the start of the run, so the session starts before the fork
     scheduler.startSession();
     addShutdownHookForEventScheduler(scheduler);
   }
 
+  /**
+   * Claims the end of the event scheduler session, so that it's ended exactly once, either by the
+   * build or by the shutdown hook. The lock is only held for the claim, not while the event
+   * plugins end the session.
+   *
+   * @return true if the caller must end the session
+   */
+  private boolean claimSessionEnd(EventScheduler scheduler) {
+    synchronized (eventSchedulerLock) {
+      if (sessionEndClaimed || scheduler.isSessionStopped()) {
+        return false;
+      }
+      sessionEndClaimed = true;
+      return true;
+    }
+  }
+
   private void addShutdownHookForEventScheduler(EventScheduler scheduler) {
     final Thread main = Thread.currentThread();
     Runnable shutdowner =
         () -> {
-          synchronized (scheduler) {
-            if (!scheduler.isSessionStopped()) {
-              getLog().info("Shutdown Hook: abort event scheduler session!");
-              // implicit stop session
-              scheduler.abortSession();
-            }
+          if (claimSessionEnd(scheduler)) {
+            getLog().info("Shutdown Hook: abort event scheduler session!");
+            // implicit stop session
+            scheduler.abortSession();
           }
 
           // try to hold on to main thread to let the abort event tasks finish properly
@@ -322,11 +669,36 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
     Runtime.getRuntime().addShutdownHook(eventSchedulerShutdownThread);
   }
 
-  private Set<File> runDirectories() {
-    File[] directories = resultsFolder.listFiles(File::isDirectory);
-    return (directories == null)
-        ? Collections.emptySet()
-        : new HashSet<>(Arrays.asList(directories));
+  /**
+   * Creates a results folder private to a single fork, so that the run directory it produces is
+   * known exactly, even when other builds share the results folder.
+   */
+  private File newForkResultsFolder() throws IOException {
+    return Files.createDirectories(
+            resultsFolder.toPath().resolve(FORK_RESULTS_FOLDER_PREFIX + UUID.randomUUID()))
+        .toFile();
+  }
+
+  /** Moves the run directories produced by a fork into the results folder and records them. */
+  private void collectForkRunDirectories(File forkResultsFolder) throws IOException {
+    File[] runDirectories = forkResultsFolder.listFiles(File::isDirectory);
+    File[] forkFiles = forkResultsFolder.listFiles(File::isFile);
+    if (runDirectories != null) {
+      for (File runDirectory : runDirectories) {
+        File target = new File(resultsFolder, runDirectory.getName());
+        for (int i = 1; target.exists(); i++) {
+          target = new File(resultsFolder, runDirectory.getName() + "-" + i);
+        }
+        // files about the fork itself, e.g. resource samples, go with each of its runs
+        for (File forkFile : forkFiles) {
+          Files.copy(forkFile.toPath(), runDirectory.toPath().resolve(forkFile.getName()));
+        }
+        Files.move(runDirectory.toPath(), target.toPath());
+        getLog().debug("Run directory " + target.getName() + " produced");
+        newRunDirectories.add(target);
+      }
+    }
+    FileUtils.deleteDirectory(forkResultsFolder);
   }
 
   private void iterateBySimulations(
@@ -339,7 +711,7 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
     int simulationsCount = simulations.size();
     for (int i = 0; i < simulationsCount; i++) {
       try {
-        executeGatling(jvmArgs, gatlingArgs(simulations.get(i)), testClasspath, toolchain);
+        executeSimulation(jvmArgs, simulations.get(i), testClasspath, toolchain);
       } catch (GatlingSimulationAssertionsFailedException e) {
         if (exc == null && i == simulationsCount - 1) {
           throw e;
@@ -353,6 +725,10 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
           continue;
         }
         throw e;
+      } finally {
+        if (backgroundReports && isDeferringReports()) {
+          generateReportsInBackground(jvmArgs, testClasspath, toolchain);
+        }
       }
     }
 
@@ -364,31 +740,577 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
     }
   }
 
+  private void executeSimulation(
+      List<String> gatlingJvmArgs,
+      String simulationClass,
+      List<String> testClasspath,
+      Toolchain toolchain)
+      throws Exception {
+    if (remoteInjectors != null && !remoteInjectors.isEmpty()) {
+      executeRemoteGatling(gatlingJvmArgs, simulationClass, testClasspath, toolchain);
+      return;
+    }
+
+    try (ReactorForkLimiter.Slot slot = acquireReactorSlot(shards);
+        HostLock lock = acquireHostLock(simulationClass);
+        CpuAffinity.Lease cpus = leaseCpus(shards)) {
+      RunMetadata metadata = new RunMetadata().set("simulation", simulationClass);
+      if (lock != null) {
+        metadata
+            .set("hostLockFile", hostLockFile.getAbsolutePath())
+            .set("queueTimeMillis", lock.getQueueTime().toMillis());
+      }
+
+      if (shards > 1) {
+        executeShardedGatling(
+            gatlingJvmArgs, simulationClass, testClasspath, toolchain, metadata, cpus);
+      } else {
+        CpuAffinity.Placement placement = cpus == null ? null : cpus.get(0);
+        if (placement != null) {
+          metadata.set("cpus", placement.getCpuList()).set("numaNode", placement.getNode());
+        }
+        File forkResultsFolder = newForkResultsFolder();
+        File recording = new File(forkResultsFolder, JfrSummary.RECORDING_FILE);
+        try {
+          metadata.write(forkResultsFolder);
+          executeGatling(
+              isJfrProfile() ? JfrSummary.jvmArgs(gatlingJvmArgs, recording) : gatlingJvmArgs,
+              gatlingArgs(
+                  simulationClass, forkResultsFolder, noReports || isDeferringReports(), null),
+              testClasspath,
+              toolchain,
+              new File(forkResultsFolder, INJECTOR_SAMPLES_FILE),
+              placement);
+        } finally {
+          if (isJfrProfile()) {
+            summarizeRecording(
+                recording, new File(forkResultsFolder, JfrSummary.SUMMARY_FILE), "Injector");
+          }
+          collectForkRunDirectories(forkResultsFolder);
+        }
+      }
+    }
+  }
+
+  private ReactorForkLimiter.Slot acquireReactorSlot(int forks) throws InterruptedException {
+    if (forkCpus > 0) {
+      return ReactorForkLimiter.forBuild(
+              buildKey(), Runtime.getRuntime().availableProcessors(), getLog())
+          .acquire(forkCpus * forks, getLog());
+    } else if (maxConcurrentForks > 0) {
+      return ReactorForkLimiter.forBuild(buildKey(), maxConcurrentForks, getLog())
+          .acquire(forks, getLog());
+    }
+    return () -> {};
+  }
+
+  /**
+   * @return an object shared by the executions of all the modules of the build, unlike the session
+   *     Maven clones for every module of a parallel build
+   */
+  private Object buildKey() {
+    return session.getRequest();
+  }
+
+  private CpuAffinity.Lease leaseCpus(int forks) {
+    if (!cpuAffinity) {
+      return null;
+    } else if (!CpuAffinity.isSupported()) {
+      getLog().warn("CPU affinity requires Linux and taskset, injectors won't be pinned");
+      return null;
+    }
+    CpuAffinity host = CpuAffinity.forBuild(buildKey());
+    int cpusPerFork =
+        forkCpus > 0
+            ? forkCpus
+            : host.getCpuCount() / Math.max(forks, Math.max(maxConcurrentForks, 1));
+    CpuAffinity.Lease lease = host.lease(forks, cpusPerFork);
+    if (lease.get(forks - 1) == null) {
+      getLog().warn("Not enough free CPUs to pin every injector, some won't be pinned");
+    }
+    return lease;
+  }
+
+  private HostLock acquireHostLock(String simulationClass) throws Exception {
+    if (!hostLock) {
+      return null;
+    }
+    String owner =
+        simulationClass
+            + " of "
+            + mavenProject.getArtifactId()
+            + " (pid "
+            + ProcessHandle.current().pid()
+            + ")";
+    try {
+      return HostLock.acquire(
+          hostLockFile.toPath(), owner, Duration.ofSeconds(hostLockTimeout), getLog());
+    } catch (TimeoutException e) {
+      throw new MojoExecutionException(
+          "Timed out after "
+              + hostLockTimeout
+              + "s waiting for the host load test lock: "
+              + e.getMessage());
+    }
+  }
+
+  private boolean isJfrProfile() {
+    return PROFILE_JFR.equals(profile);
+  }
+
+  private void summarizeRecording(File recording, File summaryFile, String injector) {
+    if (!recording.exists()) {
+      getLog().warn("No Flight Recorder recording was dumped by " + injector);
+      return;
+    }
+    try {
+      List<String> summary = JfrSummary.read(recording.toPath()).lines();
+      Files.write(summaryFile.toPath(), summary);
+      getLog().info(injector + " Flight Recorder summary:");
+      summary.forEach(line -> getLog().info(line));
+    } catch (IOException e) {
+      getLog().warn("Could not summarize Flight Recorder recording " + recording, e);
+    }
+  }
+
   private void executeGatling(
       List<String> gatlingJvmArgs,
       List<String> gatlingArgs,
       List<String> testClasspath,
-      Toolchain toolchain)
+      Toolchain toolchain,
+      File resourceSamples,
+      CpuAffinity.Placement placement)
       throws Exception {
     Fork forkedGatling =
+        withRunControl(
+            newFork(
+                GATLING_MAIN_CLASS,
+                testClasspath,
+                gatlingJvmArgs,
+                gatlingArgs,
+                toolchain,
+                propagateSystemProperties,
+                workingDirectory),
+            resourceSamples,
+            placement);
+
+    startEventScheduler(gatlingJvmArgs, forkedGatling.getSchedulerExceptionHandler());
+
+    runGatlingFork(forkedGatling);
+  }
+
+  private Fork withRunControl(Fork fork, File resourceSamples, CpuAffinity.Placement placement)
+      throws IOException {
+    fork.maxRunDuration(Duration.ofSeconds(maxRunDuration))
+        .stopGracePeriod(Duration.ofSeconds(stopGracePeriod));
+    if (stopChannel) {
+      fork.withStopChannel();
+    }
+    if (resourceSamples != null && injectorSamplingInterval > 0) {
+      fork.sampleResources(resourceSamples, Duration.ofMillis(injectorSamplingInterval));
+    }
+    if (placement != null) {
+      getLog().debug("Pinning injector to CPUs " + placement.getCpuList());
+      fork.launchWith(placement.launcher());
+    }
+    return fork;
+  }
+
+  private void executeShardedGatling(
+      List<String> gatlingJvmArgs,
+      String simulationClass,
+      List<String> testClasspath,
+      Toolchain toolchain,
+      RunMetadata metadata,
+      CpuAffinity.Lease cpus)
+      throws Exception {
+    ShardedRun shardedRun = ShardedRun.create(resultsFolder, simulationClass, shards);
+    newRunDirectories.add(shardedRun.getCombinedRunDirectory());
+    metadata.set("shards", shards);
+    for (int i = 0; cpus != null && cpus.get(i) != null; i++) {
+      metadata
+          .set("shard." + i + ".cpus", cpus.get(i).getCpuList())
+          .set("shard." + i + ".numaNode", cpus.get(i).getNode());
+    }
+    metadata.write(shardedRun.getStagingDirectory());
+    getLog()
+        .info(
+            "Sharding "
+                + simulationClass
+                + " across "
+                + shards
+                + " injector processes in "
+                + shardedRun.getCombinedRunDirectory().getName());
+
+    List<Fork> shardForks = new ArrayList<>(shards);
+    for (int i = 0; i < shards; i++) {
+      List<String> shardJvmArgs = shardFeederJvmArgs(shardedRun.shardJvmArgs(gatlingJvmArgs, i), i);
+      shardForks.add(
+          withRunControl(
+              newFork(
+                  GATLING_MAIN_CLASS,
+                  shardClasspath(testClasspath, i),
+                  isJfrProfile()
+                      ? JfrSummary.jvmArgs(shardJvmArgs, shardRecording(shardedRun, i))
+                      : shardJvmArgs,
+                  gatlingArgs(simulationClass, shardedRun.shardResultsFolder(i), true, null),
+                  toolchain,
+                  propagateSystemProperties,
+                  workingDirectory),
+              new File(shardedRun.getStagingDirectory(), "injector-shard-" + i + ".csv"),
+              cpus == null ? null : cpus.get(i)));
+    }
+
+    startEventScheduler(gatlingJvmArgs, shardsExceptionHandler(shardForks));
+
+    ExecutorService shardExecutor = Executors.newFixedThreadPool(shards);
+    Exception failure = null;
+    try {
+      runShards(simulationClass, shardForks, shardExecutor);
+      collectSimulationLogs(shardedRun);
+    } catch (Exception e) {
+      failure = e;
+      throw e;
+    } finally {
+      shardExecutor.shutdownNow();
+      if (isJfrProfile()) {
+        for (int i = 0; i < shards; i++) {
+          summarizeRecording(
+              shardRecording(shardedRun, i),
+              new File(shardedRun.getStagingDirectory(), "injector-shard-" + i + "-jfr.txt"),
+              "Shard " + i);
+        }
+      }
+      publish(shardedRun, failure);
+    }
+
+    generateCombinedReport(shardedRun, gatlingJvmArgs, testClasspath, toolchain);
+  }
+
+  /** Runs the shards at the same time, and waits for all of them to exit. */
+  private void runShards(
+      String simulationClass, List<Fork> shardForks, ExecutorService shardExecutor)
+      throws Exception {
+    List<Future<Void>> shardRuns = new ArrayList<>(shards);
+    for (Fork shardFork : shardForks) {
+      shardRuns.add(
+          shardExecutor.submit(
+              () -> {
+                runGatlingFork(shardFork);
+                return null;
+              }));
+    }
+
+    Exception shardFailure = null;
+    for (int i = 0; i < shards; i++) {
+      try {
+        shardRuns.get(i).get();
+      } catch (ExecutionException e) {
+        // assertions are evaluated once on the combined report, not per shard
+        if (!(e.getCause() instanceof GatlingSimulationAssertionsFailedException)) {
+          getLog().error("Shard " + i + " of " + simulationClass + " failed", e.getCause());
+          if (shardFailure == null) {
+            shardFailure = (Exception) e.getCause();
+          }
+        }
+      }
+    }
+    if (shardFailure != null) {
+      throw shardFailure;
+    }
+  }
+
+  /** Puts the feeder slices of a shard first on its classpath, so that feeders resolve to them. */
+  private List<String> shardClasspath(List<String> testClasspath, int shard) {
+    File slice = FeederSplitter.sliceDirectory(feedersDirectory, shards, shard);
+    if (!slice.isDirectory()) {
+      return testClasspath;
+    }
+    List<String> classpath = new ArrayList<>(testClasspath.size() + 1);
+    classpath.add(slice.getAbsolutePath());
+    classpath.addAll(testClasspath);
+    return classpath;
+  }
+
+  private List<String> shardFeederJvmArgs(List<String> jvmArgs, int shard) {
+    File slice = FeederSplitter.sliceDirectory(feedersDirectory, shards, shard);
+    if (slice.isDirectory()) {
+      jvmArgs.add("-D" + FeederSplitter.FEEDER_SLICE_PROPERTY + "=" + slice.getAbsolutePath());
+    }
+    return jvmArgs;
+  }
+
+  private void executeRemoteGatling(
+      List<String> gatlingJvmArgs,
+      String simulationClass,
+      List<String> testClasspath,
+      Toolchain toolchain)
+      throws Exception {
+    ShardedRun shardedRun =
+        ShardedRun.create(resultsFolder, simulationClass, remoteInjectors.size());
+    newRunDirectories.add(shardedRun.getCombinedRunDirectory());
+    getLog()
+        .info(
+            "Sharding "
+                + simulationClass
+                + " across injector agents "
+                + remoteInjectors
+                + " in "
+                + shardedRun.getCombinedRunDirectory().getName());
+    if (isJfrProfile()) {
+      getLog().warn("gatling.profile is ignored with remote injectors");
+    }
+
+    Exception failure = null;
+    try (RemoteInjectorCoordinator coordinator =
+        new RemoteInjectorCoordinator(remoteInjectors, remoteInjectorToken, getLog())) {
+      coordinator
+          .maxRunDuration(Duration.ofSeconds(maxRunDuration))
+          .stopGracePeriod(Duration.ofSeconds(stopGracePeriod));
+      runRemoteShards(gatlingJvmArgs, simulationClass, testClasspath, shardedRun, coordinator);
+      collectSimulationLogs(shardedRun);
+    } catch (Exception e) {
+      failure = e;
+      throw e;
+    } finally {
+      publish(shardedRun, failure);
+    }
+
+    generateCombinedReport(shardedRun, gatlingJvmArgs, testClasspath, toolchain);
+  }
+
+  private static File shardRecording(ShardedRun shardedRun, int shardIndex) {
+    return new File(shardedRun.getStagingDirectory(), "injector-shard-" + shardIndex + ".jfr");
+  }
+
+  /**
+   * Publishes a sharded run, even a failed one, without hiding the failure of the run behind a
+   * failure to publish it.
+   */
+  private static void publish(ShardedRun shardedRun, Exception failure) throws IOException {
+    try {
+      shardedRun.publish();
+    } catch (IOException e) {
+      if (failure == null) {
+        throw e;
+      }
+      failure.addSuppressed(e);
+    }
+  }
+
+  private void runRemoteShards(
+      List<String> gatlingJvmArgs,
+      String simulationClass,
+      List<String> testClasspath,
+      ShardedRun shardedRun,
+      RemoteInjectorCoordinator coordinator)
+      throws Exception {
+    coordinator.shipClasspath(testClasspath);
+    startEventScheduler(gatlingJvmArgs, coordinator.getSchedulerExceptionHandler());
+
+    List<Integer> exitValues =
+        coordinator.run(
+            GATLING_MAIN_CLASS,
+            shardedRun,
+            gatlingJvmArgs,
+            gatlingArgs(simulationClass, null, true, null),
+            System.currentTimeMillis() + remoteStartDelay * 1000L);
+    coordinator.fetchSimulationLogs(shardedRun);
+
+    for (int i = 0; i < exitValues.size(); i++) {
+      int exitValue = exitValues.get(i);
+      // assertions are evaluated once on the combined report, not per shard
+      if (exitValue != 0 && exitValue != 2) {
+        getLog().error("Injector agent " + remoteInjectors.get(i) + " failed");
+        throw new Fork.ForkException(exitValue);
+      }
+    }
+  }
+
+  private void collectSimulationLogs(ShardedRun shardedRun) throws IOException {
+    List<Path> simulationLogs = shardedRun.collectSimulationLogs();
+    getLog()
+        .info(
+            "Collected "
+                + simulationLogs.size()
+                + " simulation logs in "
+                + shardedRun.getCombinedRunDirectory().getName());
+  }
+
+  private void generateCombinedReport(
+      ShardedRun shardedRun,
+      List<String> gatlingJvmArgs,
+      List<String> testClasspath,
+      Toolchain toolchain)
+      throws Exception {
+    if (noReports || isDeferringReports()) {
+      return;
+    }
+    List<String> reportJvmArgs =
+        reportJvmArgs(gatlingJvmArgs, shardedRun.getCombinedRunDirectory());
+    if (reportJvmArgs != null) {
+      runGatlingFork(
+          newFork(
+              GATLING_MAIN_CLASS,
+              testClasspath,
+              reportJvmArgs,
+              gatlingArgs(
+                  null, resultsFolder, false, shardedRun.getCombinedRunDirectory().getName()),
+              toolchain,
+              propagateSystemProperties,
+              workingDirectory));
+    }
+  }
+
+  private boolean isDeferringReports() {
+    return (overlapReports || backgroundReports) && !noReports;
+  }
+
+  /**
+   * Queues the generation of the reports of the new runs that don't have them yet, to be generated
+   * one after the other by a background thread.
+   */
+  private void generateReportsInBackground(
+      List<String> gatlingJvmArgs, List<String> testClasspath, Toolchain toolchain) {
+    if (reportsExecutor == null) {
+      reportsExecutor =
+          Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "gatling-reports"));
+    }
+    for (File runDirectory : newRunDirectories) {
+      if (deferredReportRunDirectories.add(runDirectory)) {
+        deferredReports.add(
+            reportsExecutor.submit(
+                () -> {
+                  generateReports(runDirectory, gatlingJvmArgs, testClasspath, toolchain);
+                  return null;
+                }));
+      }
+    }
+  }
+
+  private void generateReports(
+      File runDirectory,
+      List<String> gatlingJvmArgs,
+      List<String> testClasspath,
+      Toolchain toolchain)
+      throws Exception {
+    List<String> reportJvmArgs = reportJvmArgs(gatlingJvmArgs, runDirectory);
+    if (reportJvmArgs == null) {
+      return;
+    }
+    long start = System.nanoTime();
+    Fork fork =
         newFork(
             GATLING_MAIN_CLASS,
             testClasspath,
-            gatlingJvmArgs,
-            gatlingArgs,
+            reportJvmArgs,
+            gatlingArgs(null, resultsFolder, false, runDirectory.getName()),
             toolchain,
             propagateSystemProperties,
             workingDirectory);
+    if (backgroundReports && !MojoUtils.IS_WINDOWS && MojoUtils.isOnPath("nice")) {
+      // leave the CPU to the simulations still running
+      fork.launchWith(Arrays.asList("nice", "-n", "19"));
+    }
+    try {
+      fork.run();
+    } catch (Fork.ForkException e) {
+      // assertions were already evaluated by the run itself
+      if (e.exitValue != 2) {
+        throw e;
+      }
+    }
+    getLog()
+        .info(
+            "Generated the reports of "
+                + runDirectory.getName()
+                + " in "
+                + (System.nanoTime() - start) / 1_000_000
+                + "ms");
+  }
+
+  private List<String> reportJvmArgs(List<String> jvmArgs, File runDirectory) throws IOException {
+    return reportJvmArgs(jvmArgs, autoSizeReportHeap, runDirectory);
+  }
+
+  /** Compresses the simulation logs of the new runs, failures only being reported. */
+  private void compressSimulationLogs() {
+    for (File runDirectory : newRunDirectories) {
+      long start = System.nanoTime();
+      try {
+        List<Path> compressed = SimulationLog.compress(runDirectory);
+        if (!compressed.isEmpty()) {
+          getLog()
+              .info(
+                  "Compressed "
+                      + compressed.size()
+                      + " simulation logs of "
+                      + runDirectory.getName()
+                      + " in "
+                      + (System.nanoTime() - start) / 1_000_000
+                      + "ms");
+        }
+      } catch (IOException e) {
+        getLog()
+            .warn(
+                "Could not compress the simulation logs of "
+                    + runDirectory.getName()
+                    + ": "
+                    + e.getMessage());
+      }
+    }
+  }
+
+  /** @return the first failure of the reports generated in the background, if any */
+  private Exception awaitDeferredReports() {
+    Exception failure = null;
+    for (Future<Void> reports : deferredReports) {
+      try {
+        reports.get();
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return e;
+      }
+    }
+    return failure;
+  }
 
+  private SchedulerExceptionHandler shardsExceptionHandler(List<Fork> shardForks) {
+    return new SchedulerExceptionHandler() {
+      @Override
+      public void kill(String message) {
+        shardForks.forEach(fork -> fork.getSchedulerExceptionHandler().kill(message));
+      }
+
+      @Override
+      public void abort(String message) {
+        shardForks.forEach(fork -> fork.getSchedulerExceptionHandler().abort(message));
+      }
+
+      @Override
+      public void stop(String message) {
+        shardForks.forEach(fork -> fork.getSchedulerExceptionHandler().stop(message));
+      }
+    };
+  }
+
+  private void startEventScheduler(
+      List<String> gatlingJvmArgs, SchedulerExceptionHandler exceptionHandler) {
     if (isEventSchedulerEnabled) {
-      SchedulerExceptionHandler exceptionHandler = forkedGatling.getSchedulerExceptionHandler();
-      sendTestConfig(eventScheduler, gatlingJvmArgs);
       startScheduler(eventScheduler, exceptionHandler);
+      // in the background, so that the fork doesn't wait for it
+      sendTestConfig(eventScheduler, gatlingJvmArgs);
     } else {
       getLog()
           .warn("The Event Scheduler is disabled. Use 'eventSchedulerEnabled' property to enable.");
     }
+  }
 
+  private void runGatlingFork(Fork forkedGatling) throws Exception {
     try {
       forkedGatling.run();
     } catch (Fork.ForkException e) {
@@ -413,7 +1335,8 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
         TestRunConfigUtil.createTestRunConfigMessageKeys(
             "events-gatling-maven-plugin", keyValues, "gatling");
 
-    scheduler.sendMessage(message);
+    // a newer configuration replaces a pending one
+    eventDispatcher.dispatch("test-run-config", () -> scheduler.sendMessage(message));
   }
 
   private List<String> activeProfiles() {
@@ -438,32 +1361,104 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
         .build();
   }
 
+  private void checkSlas() throws IOException, MojoFailureException {
+    if (slas == null || slas.isEmpty()) {
+      return;
+    }
+    List<String> violations = new ArrayList<>();
+    for (File runDirectory : newRunDirectories) {
+      SimulationStatistics statistics = runStatistics(runDirectory);
+      if (statistics.getSimulationId() != null) {
+        violations.addAll(Sla.violations(slas, statistics));
+      }
+    }
+    if (!violations.isEmpty()) {
+      violations.forEach(violation -> getLog().error(violation));
+      throw new MojoFailureException(
+          violations.size() + " SLA violations: " + String.join("; ", violations));
+    }
+  }
+
   private void recordSimulationResults(Exception exception) throws MojoExecutionException {
     try {
-      saveSimulationResultToFile(exception);
-      copyJUnitReports();
+      saveSimulationResultToFile(newRunDirectories, exception);
+      copyJUnitReports(newRunDirectories);
+      writeSummaryReports(newRunDirectories);
+      recordTrends(newRunDirectories);
     } catch (IOException e) {
       throw new MojoExecutionException("Could not record simulation results.", e);
     }
+    resultsRecorded = true;
   }
 
-  private void saveSimulationResultToFile(Exception exception) throws IOException {
+  /**
+   * Records the results that depend on the reports generated in the background, once they're
+   * done: the assertion files written with the reports, and the retention of the run directories
+   * the reports were written into.
+   */
+  private void recordReportedResults() throws MojoExecutionException {
+    try {
+      if (useOldJenkinsJUnitSupport) {
+        copyAssertionFiles(newRunDirectories);
+      }
+      applyRetention(newRunDirectories);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Could not record simulation results.", e);
+    }
+  }
+
+  private void saveSimulationResultToFile(Set<File> newRunDirectories, Exception exception)
+      throws IOException {
     Path resultsFile = resultsFolder.toPath().resolve(LAST_RUN_FILE);
 
     try (BufferedWriter writer = Files.newBufferedWriter(resultsFile)) {
-      saveListOfNewRunDirectories(writer);
+      saveListOfNewRunDirectories(writer, newRunDirectories);
       writeExceptionIfExists(writer, exception);
     }
   }
 
-  private void saveListOfNewRunDirectories(BufferedWriter writer) throws IOException {
-    for (File directory : runDirectories()) {
-      if (!existingRunDirectories.contains(directory)) {
-        writer.write(directory.getName() + System.lineSeparator());
+  private void saveListOfNewRunDirectories(BufferedWriter writer, Set<File> newRunDirectories)
+      throws IOException {
+    for (File directory : newRunDirectories) {
+      writer.write(directory.getName() + System.lineSeparator());
+    }
+  }
+
+  private void recordTrends(Set<File> newRunDirectories) {
+    if (trendsDirectory == null) {
+      return;
+    }
+    TrendStore store = new TrendStore(trendsDirectory);
+    String revision =
+        trendsRevision != null ? trendsRevision : TrendStore.gitRevision(project.getBasedir());
+    for (File runDirectory : newRunDirectories) {
+      try {
+        SimulationStatistics statistics = runStatistics(runDirectory);
+        if (statistics.getSimulationId() != null) {
+          store.append(statistics, runDirectory.getName(), revision);
+        }
+      } catch (IOException e) {
+        // a missing summary must not fail an otherwise successful run
+        getLog().warn("Could not record the trends of run " + runDirectory.getName(), e);
       }
     }
   }
 
+  private void applyRetention(Set<File> newRunDirectories) throws IOException {
+    ResultsRetention retention =
+        new ResultsRetention(
+            resultsFolder,
+            retentionMaxRuns,
+            retentionMaxAgeDays,
+            retentionMaxSizeMb,
+            retentionArchive,
+            getLog());
+    if (retention.isEnabled()) {
+      List<File> expired = retention.apply(newRunDirectories);
+      getLog().info("Retention policy expired " + expired.size() + " run directories");
+    }
+  }
+
   private void writeExceptionIfExists(BufferedWriter writer, Exception exception)
       throws IOException {
     if (exception != null) {
@@ -482,29 +1477,38 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
     return isBlank(sNullable) ? s : s + ": " + sNullable;
   }
 
-  private void copyJUnitReports() throws MojoExecutionException {
+  // the assertion files are written with the reports
+  private void copyAssertionFiles(Set<File> newRunDirectories) throws IOException {
+    for (File directory : newRunDirectories) {
+      File jsDir = new File(directory, "js");
+      if (jsDir.exists() && jsDir.isDirectory()) {
+        File assertionFile = new File(jsDir, "assertions.xml");
+        if (assertionFile.exists()) {
+          File newAssertionFile =
+              new File(resultsFolder, "assertions-" + directory.getName() + ".xml");
+          Files.copy(
+              assertionFile.toPath(), newAssertionFile.toPath(), COPY_ATTRIBUTES, REPLACE_EXISTING);
+          getLog()
+              .info(
+                  "Copying assertion file "
+                      + assertionFile.getCanonicalPath()
+                      + " to "
+                      + newAssertionFile.getCanonicalPath());
+        }
+      }
+    }
+  }
+
+  private void copyJUnitReports(Set<File> newRunDirectories) throws MojoExecutionException {
 
     try {
-      if (useOldJenkinsJUnitSupport) {
-        for (File directory : runDirectories()) {
-          File jsDir = new File(directory, "js");
-          if (jsDir.exists() && jsDir.isDirectory()) {
-            File assertionFile = new File(jsDir, "assertions.xml");
-            if (assertionFile.exists()) {
-              File newAssertionFile =
-                  new File(resultsFolder, "assertions-" + directory.getName() + ".xml");
-              Files.copy(
-                  assertionFile.toPath(),
-                  newAssertionFile.toPath(),
-                  COPY_ATTRIBUTES,
-                  REPLACE_EXISTING);
-              getLog()
-                  .info(
-                      "Copying assertion file "
-                          + assertionFile.getCanonicalPath()
-                          + " to "
-                          + newAssertionFile.getCanonicalPath());
-            }
+      if (junitReports) {
+        for (File directory : newRunDirectories) {
+          SimulationStatistics statistics = runStatistics(directory);
+          if (statistics.getSimulationId() != null) {
+            File report = new File(junitReportsDirectory, "TEST-" + directory.getName() + ".xml");
+            JUnitReport.write(statistics, report);
+            getLog().info("Writing JUnit report " + report.getCanonicalPath());
           }
         }
       }
@@ -513,28 +1517,37 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
     }
   }
 
-  private List<String> gatlingJvmArgs() {
-    return computeArgs(jvmArgs, GatlingConstants.DEFAULT_JVM_OPTIONS_BASE, overrideJvmArgs);
+  private void writeSummaryReports(Set<File> newRunDirectories) throws IOException {
+    if (!summaryReports) {
+      return;
+    }
+    for (File directory : newRunDirectories) {
+      long start = System.nanoTime();
+      SimulationStatistics statistics = runStatistics(directory);
+      if (statistics.getSimulationId() != null) {
+        SummaryReport.write(statistics, directory);
+        getLog()
+            .info(
+                "Wrote the summaries of "
+                    + directory.getName()
+                    + " in "
+                    + (System.nanoTime() - start) / 1_000_000
+                    + "ms");
+      }
+    }
   }
 
-  private List<String> computeArgs0(List<String> custom, List<String> defaults, boolean override) {
-    if (custom.isEmpty()) {
-      return defaults;
-    }
-    if (override) {
-      List<String> merged = new ArrayList<>(custom);
-      merged.addAll(defaults);
-      return merged;
+  private SimulationStatistics runStatistics(File runDirectory) throws IOException {
+    SimulationStatistics statistics = runStatistics.get(runDirectory);
+    if (statistics == null) {
+      statistics = SimulationStatistics.fromRunDirectory(runDirectory);
+      runStatistics.put(runDirectory, statistics);
     }
-    return custom;
+    return statistics;
   }
 
-  private List<String> computeArgs(List<String> custom, List<String> defaults, boolean override) {
-    List<String> result = new ArrayList<>(computeArgs0(custom, defaults, override));
-    // force disable disableClassPathURLCheck because Debian messed up and takes
-    // forever to fix, see https://bugs.debian.org/cgi-bin/bugreport.cgi?bug=911925
-    result.add("-Djdk.net.URLClassPath.disableClassPathURLCheck=true");
-    return result;
+  private List<String> gatlingJvmArgs() {
+    return gatlingJvmArgs(jvmArgs, overrideJvmArgs);
   }
 
   private List<String> simulations() throws MojoFailureException {
@@ -564,10 +1577,19 @@ public final class GatlingMojo extends AbstractGatlingExecutionMojo {
   }
 
   private List<String> gatlingArgs(String simulationClass) throws Exception {
+    return gatlingArgs(simulationClass, resultsFolder, noReports, reportsOnly);
+  }
+
+  private List<String> gatlingArgs(
+      String simulationClass, File resultsFolder, boolean noReports, String reportsOnly)
+      throws Exception {
     // Arguments
     List<String> args = new ArrayList<>();
-    addArg(args, "rsf", resourcesFolder.getCanonicalPath());
-    addArg(args, "rf", resultsFolder.getCanonicalPath());
+    // remote injector agents use their own folders
+    if (resultsFolder != null) {
+      addArg(args, "rsf", resourcesFolder.getCanonicalPath());
+      addArg(args, "rf", resultsFolder.getCanonicalPath());
+    }
 
     addArg(args, "rd", runDescription);
 
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Lock on a file shared by all the builds of a host, so that load tests started by independent
+ * builds, e.g. concurrent CI pipelines on the same agent, run one at a time instead of skewing each
+ * other's results.
+ *
+ * <p>The lock is a file lock, released by the operating system if the build dies. The holder
+ * writes a description of itself to the file, so that waiting builds can tell what they wait for.
+ */
+final class HostLock implements AutoCloseable {
+
+  private static final long POLL_INTERVAL_MILLIS = 500;
+
+  // file locks are held per JVM, so the forks of a build queue here before competing for the file
+  private static final Semaphore JVM_PERMIT = new Semaphore(1, true);
+
+  private final FileChannel channel;
+  private final FileLock lock;
+  private final Duration queueTime;
+
+  private HostLock(FileChannel channel, FileLock lock, Duration queueTime) {
+    this.channel = channel;
+    this.lock = lock;
+    this.queueTime = queueTime;
+  }
+
+  /**
+   * Waits until the lock is free and takes it.
+   *
+   * @param file the lock file, created if needed and never deleted
+   * @param owner a description of the run taking the lock, shown to the runs waiting for it
+   * @param timeout how long to wait at most, zero meaning forever
+   * @param log the log to report waits to
+   * @return the lock, to close once the run has ended
+   * @throws IOException if the lock file can't be opened
+   * @throws InterruptedException if interrupted while waiting
+   * @throws TimeoutException if the lock is still held by another run after the timeout
+   */
+  static HostLock acquire(Path file, String owner, Duration timeout, Log log)
+      throws IOException, InterruptedException, TimeoutException {
+    long start = System.nanoTime();
+    if (timeout.isZero()) {
+      JVM_PERMIT.acquire();
+    } else if (!JVM_PERMIT.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+      throw new TimeoutException("Another run of this build held " + file);
+    }
+
+    FileChannel channel = null;
+    try {
+      Files.createDirectories(file.toAbsolutePath().getParent());
+      channel =
+          FileChannel.open(
+              file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      boolean waiting = false;
+      FileLock lock;
+      while ((lock = channel.tryLock()) == null) {
+        if (!waiting) {
+          log.info("Waiting for the host load test lock " + file + ", held by " + holder(file));
+          waiting = true;
+        }
+        if (!timeout.isZero() && System.nanoTime() - start > timeout.toNanos()) {
+          throw new TimeoutException(holder(file) + " held " + file);
+        }
+        Thread.sleep(POLL_INTERVAL_MILLIS);
+      }
+
+      channel.truncate(0);
+      channel.write(ByteBuffer.wrap(owner.getBytes(UTF_8)), 0);
+      channel.force(false);
+      Duration queueTime = Duration.ofNanos(System.nanoTime() - start);
+      if (waiting) {
+        log.info("Acquired the host load test lock after " + queueTime.getSeconds() + "s");
+      }
+      return new HostLock(channel, lock, queueTime);
+    } catch (IOException | InterruptedException | TimeoutException | RuntimeException e) {
+      if (channel != null) {
+        channel.close();
+      }
+      JVM_PERMIT.release();
+      throw e;
+    }
+  }
+
+  private static String holder(Path file) {
+    try {
+      String holder = new String(Files.readAllBytes(file), UTF_8).trim();
+      return holder.isEmpty() ? "another run" : holder;
+    } catch (IOException e) {
+      // Windows doesn't allow reading locked regions
+      return "another run";
+    }
+  }
+
+  /** @return how long the run waited for the lock */
+  Duration getQueueTime() {
+    return queueTime;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      lock.release();
+      channel.close();
+    } finally {
+      JVM_PERMIT.release();
+    }
+  }
+}
@@ -0,0 +1,462 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static io.gatling.mojo.InjectorProtocol.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import io.gatling.plugin.io.PluginLogger;
+import io.gatling.plugin.util.JavaLocator;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Standalone agent launching Gatling forks on behalf of a {@link RemoteInjectorCoordinator}.
+ *
+ * <p>Start it on every injector host with the plugin jar and its dependencies on the classpath:
+ *
+ * <pre>
+ * export GATLING_AGENT_TOKEN=...
+ * java -cp "plugin-jars/*" io.gatling.mojo.InjectorAgent [port] [workDirectory]
+ * </pre>
+ *
+ * The agent runs whatever the coordinator sends, so coordinators must prove they know the token of
+ * the {@value #TOKEN_ENV} environment variable before any command is accepted. It only listens on
+ * the loopback interface unless the {@value #BIND_ADDRESS_PROPERTY} system property says
+ * otherwise; the connection isn't encrypted, so it's meant for trusted networks or SSH tunnels.
+ *
+ * <p>Classpath entries shipped by the coordinator are cached in the work directory, so only the
+ * changed ones are transferred on the next run.
+ */
+public final class InjectorAgent implements Closeable {
+
+  static final int DEFAULT_PORT = 7878;
+  static final String TOKEN_ENV = "GATLING_AGENT_TOKEN";
+  static final String BIND_ADDRESS_PROPERTY = "gatling.agent.bindAddress";
+
+  private final ServerSocket serverSocket;
+  private final Path classpathCache;
+  private final Path runsFolder;
+  private final String token;
+  private final PluginLogger log;
+
+  /**
+   * @param bindAddress the address to listen on
+   * @param port the port to listen on, 0 for any free port
+   * @param workDirectory the directory caching the classpath and holding the runs
+   * @param token the token coordinators must know
+   * @param log the log
+   * @throws IOException if the agent can't listen on the port
+   */
+  public InjectorAgent(
+      InetAddress bindAddress, int port, File workDirectory, String token, PluginLogger log)
+      throws IOException {
+    if (token == null || token.isEmpty()) {
+      throw new IllegalArgumentException("Injector agents require a token");
+    }
+    this.token = token;
+    this.log = log;
+    this.classpathCache =
+        Files.createDirectories(workDirectory.toPath().resolve("classpath")).toRealPath();
+    this.runsFolder = Files.createDirectories(workDirectory.toPath().resolve("runs"));
+    this.serverSocket = new ServerSocket();
+    serverSocket.bind(new InetSocketAddress(bindAddress, port));
+  }
+
+  public static void main(String[] args) throws IOException {
+    PluginLogger log = newLogger();
+    String token = System.getenv(TOKEN_ENV);
+    if (token == null || token.isEmpty()) {
+      log.error("Set the token coordinators must know in the " + TOKEN_ENV + " variable");
+      System.exit(1);
+    }
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+    File workDirectory =
+        args.length > 1
+            ? new File(args[1])
+            : new File(System.getProperty("java.io.tmpdir"), "gatling-injector-agent");
+    String bindAddress = System.getProperty(BIND_ADDRESS_PROPERTY);
+    InjectorAgent agent =
+        new InjectorAgent(
+            bindAddress != null
+                ? InetAddress.getByName(bindAddress)
+                : InetAddress.getLoopbackAddress(),
+            port,
+            workDirectory,
+            token,
+            log);
+    log.info(
+        "Gatling injector agent listening on "
+            + agent.serverSocket.getInetAddress().getHostAddress()
+            + ":"
+            + agent.getPort());
+    agent.serve();
+  }
+
+  int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /** Accepts coordinator sessions in the background. */
+  void start() {
+    Thread acceptor = new Thread(this::serve, "gatling-injector-agent");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  private void serve() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        Thread session = new Thread(() -> serveSession(socket), "gatling-injector-session");
+        session.setDaemon(true);
+        session.start();
+      } catch (SocketException e) {
+        // server socket closed
+      } catch (IOException e) {
+        log.error("Could not accept a coordinator session: " + e);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+  }
+
+  private void serveSession(Socket socket) {
+    Path runFolder = runsFolder.resolve(UUID.randomUUID().toString());
+    try (Socket s = socket;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+        DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+      new Session(in, out, runFolder, s.getRemoteSocketAddress()).run();
+    } catch (IOException e) {
+      log.error("Injector session with " + socket.getRemoteSocketAddress() + " failed: " + e);
+    } finally {
+      deleteRecursively(runFolder);
+    }
+  }
+
+  private final class Session {
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final Path resultsFolder;
+    private final Object remoteAddress;
+    private List<String> classpath = new ArrayList<>();
+    private volatile Fork fork;
+    private Thread runner;
+
+    private Session(
+        DataInputStream in, DataOutputStream out, Path runFolder, Object remoteAddress) {
+      this.in = in;
+      this.out = out;
+      this.resultsFolder = runFolder.resolve("results");
+      this.remoteAddress = remoteAddress;
+    }
+
+    private void run() throws IOException {
+      if (!HELLO.equals(in.readUTF()) || in.readInt() != VERSION) {
+        send(ERROR, "Unsupported protocol, expected version " + VERSION);
+        return;
+      }
+      String challenge = newChallenge();
+      synchronized (out) {
+        out.writeUTF(HELLO);
+        out.writeInt(VERSION);
+        out.writeUTF(challenge);
+        out.flush();
+      }
+      if (!AUTH.equals(in.readUTF())
+          || !MessageDigest.isEqual(
+              authenticate(token, challenge).getBytes(UTF_8), in.readUTF().getBytes(UTF_8))) {
+        log.error("Rejected coordinator " + remoteAddress + ": authentication failed");
+        send(ERROR, "Authentication failed");
+        return;
+      }
+      synchronized (out) {
+        out.writeUTF(READY);
+        out.flush();
+      }
+
+      while (true) {
+        String command = in.readUTF();
+        switch (command) {
+          case CLASSPATH:
+            receiveClasspath();
+            break;
+          case START:
+            startFork();
+            break;
+          case STOP:
+            String stopMessage = in.readUTF();
+            if (fork != null) fork.getSchedulerExceptionHandler().stop(stopMessage);
+            break;
+          case ABORT:
+            String abortMessage = in.readUTF();
+            if (fork != null) fork.getSchedulerExceptionHandler().abort(abortMessage);
+            break;
+          case KILL:
+            String killMessage = in.readUTF();
+            if (fork != null) fork.getSchedulerExceptionHandler().kill(killMessage);
+            break;
+          case FETCH:
+            sendSimulationLogs();
+            break;
+          case BYE:
+            return;
+          default:
+            send(ERROR, "Unknown command " + command);
+            return;
+        }
+      }
+    }
+
+    private void receiveClasspath() throws IOException {
+      List<String> keys = readStrings(in);
+      for (String key : keys) {
+        checkCacheKey(key);
+      }
+      List<String> missing =
+          keys.stream()
+              .filter(key -> !Files.exists(classpathCache.resolve(key)))
+              .collect(Collectors.toList());
+      synchronized (out) {
+        out.writeUTF(MISSING);
+        writeStrings(out, missing);
+        out.flush();
+      }
+      for (int i = 0; i < missing.size(); i++) {
+        String key = checkCacheKey(in.readUTF());
+        Path part = classpathCache.resolve(key + ".part-" + UUID.randomUUID());
+        readFile(in, part);
+        Files.move(part, classpathCache.resolve(key), ATOMIC_MOVE, REPLACE_EXISTING);
+      }
+      classpath =
+          keys.stream()
+              .map(key -> classpathCache.resolve(key).toString())
+              .collect(Collectors.toList());
+      synchronized (out) {
+        out.writeUTF(READY);
+        out.flush();
+      }
+    }
+
+    private String checkCacheKey(String key) throws IOException {
+      if (!CACHE_KEY.matcher(key).matches()
+          || !classpathCache.resolve(key).normalize().startsWith(classpathCache)) {
+        throw new IOException(remoteAddress + " sent an invalid classpath entry " + key);
+      }
+      return key;
+    }
+
+    private void startFork() throws IOException {
+      String mainClass = in.readUTF();
+      List<String> jvmArgs = readStrings(in);
+      List<String> args = new ArrayList<>(readStrings(in));
+      long startAt = in.readLong();
+      int shardIndex = in.readInt();
+      int shardCount = in.readInt();
+      Duration maxRunDuration = Duration.ofMillis(in.readLong());
+      Duration stopGracePeriod = Duration.ofMillis(in.readLong());
+
+      Files.createDirectories(resultsFolder);
+      args.add("-rf");
+      args.add(resultsFolder.toString());
+
+      fork =
+          new Fork(
+                  mainClass,
+                  classpath,
+                  jvmArgs,
+                  args,
+                  JavaLocator.getJavaExecutable(),
+                  false,
+                  log,
+                  null)
+              .maxRunDuration(maxRunDuration)
+              .stopGracePeriod(stopGracePeriod)
+              .redirectOutput(this::sendProgress);
+
+      log.info(
+          "Starting shard "
+              + shardIndex
+              + "/"
+              + shardCount
+              + " of "
+              + mainClass
+              + " at "
+              + startAt);
+      // lets the coordinator tell a silent fork from a dead agent
+      ScheduledExecutorService heartbeat =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "gatling-injector-heartbeat");
+                thread.setDaemon(true);
+                return thread;
+              });
+      heartbeat.scheduleAtFixedRate(
+          this::sendHeartbeat,
+          HEARTBEAT_INTERVAL_MILLIS,
+          HEARTBEAT_INTERVAL_MILLIS,
+          TimeUnit.MILLISECONDS);
+      runner =
+          new Thread(
+              () -> {
+                int exitValue = 0;
+                try {
+                  long delay = startAt - System.currentTimeMillis();
+                  if (delay > 0) {
+                    Thread.sleep(delay);
+                  }
+                  fork.run();
+                } catch (Fork.ForkException e) {
+                  if (fork.isTimedOut()) {
+                    // even if the stopped fork exited cleanly
+                    sendProgress(e.getMessage());
+                    exitValue = -1;
+                  } else {
+                    exitValue = e.exitValue;
+                  }
+                } catch (Exception e) {
+                  sendProgress("Fork failed: " + e);
+                  exitValue = -1;
+                } finally {
+                  heartbeat.shutdownNow();
+                }
+                try {
+                  synchronized (out) {
+                    out.writeUTF(EXIT);
+                    out.writeInt(exitValue);
+                    out.flush();
+                  }
+                } catch (IOException e) {
+                  log.error("Could not send the exit value of the fork: " + e);
+                }
+              },
+              "gatling-injector-fork");
+      runner.start();
+    }
+
+    private void sendSimulationLogs() throws IOException {
+      if (runner != null) {
+        try {
+          runner.join();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while waiting for the fork", e);
+        }
+      }
+
+      List<Path> logs = new ArrayList<>();
+      if (Files.isDirectory(resultsFolder)) {
+        try (Stream<Path> files = Files.walk(resultsFolder)) {
+          files
+              .filter(file -> file.getFileName().toString().endsWith(".log"))
+              .forEach(logs::add);
+        }
+      }
+      synchronized (out) {
+        out.writeUTF(FILES);
+        out.writeInt(logs.size());
+        for (Path log : logs) {
+          out.writeUTF(resultsFolder.relativize(log).toString().replace(File.separatorChar, '/'));
+          writeFile(out, log);
+        }
+        out.flush();
+      }
+    }
+
+    private void sendProgress(String line) {
+      String truncated =
+          line.length() > MAX_LINE_LENGTH ? line.substring(0, MAX_LINE_LENGTH) : line;
+      try {
+        send(PROGRESS, truncated);
+      } catch (IOException e) {
+        // the coordinator is gone, keep draining the fork output
+      }
+    }
+
+    private void sendHeartbeat() {
+      try {
+        synchronized (out) {
+          out.writeUTF(HEARTBEAT);
+          out.flush();
+        }
+      } catch (IOException e) {
+        // the coordinator is gone
+      }
+    }
+
+    private void send(String command, String payload) throws IOException {
+      synchronized (out) {
+        out.writeUTF(command);
+        out.writeUTF(payload);
+        out.flush();
+      }
+    }
+  }
+
+  static PluginLogger newLogger() {
+    return new PluginLogger() {
+      @Override
+      public void info(String message) {
+        System.out.println(message);
+      }
+
+      @Override
+      public void error(String message) {
+        System.err.println(message);
+      }
+    };
+  }
+
+  private void deleteRecursively(Path folder) {
+    if (!Files.exists(folder)) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(folder)) {
+      files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    } catch (IOException e) {
+      log.error("Could not delete " + folder + ": " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Wire format spoken between the {@link RemoteInjectorCoordinator} and the {@link InjectorAgent}.
+ *
+ * <p>Every message starts with a command written with {@link DataOutputStream#writeUTF(String)},
+ * followed by the command specific payload:
+ *
+ * <ul>
+ *   <li>{@code HELLO version}: handshake, answered with the same message and a random challenge
+ *   <li>{@code AUTH response}: the HMAC-SHA256 of the challenge keyed with the token shared by the
+ *       coordinator and the agent, answered with {@code READY}. No other command is accepted before
+ *   <li>{@code CLASSPATH keys...}: announce the booter classpath, answered with {@code MISSING
+ *       keys...}, the coordinator then sends the content of every missing entry and the agent
+ *       acknowledges with {@code READY}
+ *   <li>{@code START mainClass jvmArgs... args... startAt shardIndex shardCount maxRunDuration
+ *       stopGracePeriod}: launch the fork at the given epoch millis, stopping it once it has run
+ *       for maxRunDuration millis, zero meaning unlimited, the agent streams {@code PROGRESS line}
+ *       messages, and {@code HEARTBEAT} ones while the fork is silent, and finally {@code EXIT
+ *       exitValue}, -1 if the fork exceeded its maximum run duration
+ *   <li>{@code STOP|ABORT|KILL message}: forwarded to the running fork
+ *   <li>{@code FETCH}: answered with {@code FILES} and the simulation logs of the run
+ *   <li>{@code BYE}: ends the session
+ * </ul>
+ */
+final class InjectorProtocol {
+
+  static final int VERSION = 3;
+
+  static final String HELLO = "HELLO";
+  static final String AUTH = "AUTH";
+  static final String CLASSPATH = "CLASSPATH";
+  static final String MISSING = "MISSING";
+  static final String READY = "READY";
+  static final String START = "START";
+  static final String PROGRESS = "PROGRESS";
+  static final String HEARTBEAT = "HEARTBEAT";
+  static final String EXIT = "EXIT";
+  static final String STOP = "STOP";
+  static final String ABORT = "ABORT";
+  static final String KILL = "KILL";
+  static final String FETCH = "FETCH";
+  static final String FILES = "FILES";
+  static final String BYE = "BYE";
+  static final String ERROR = "ERROR";
+
+  // well below the time after which coordinators give up on a silent agent
+  static final long HEARTBEAT_INTERVAL_MILLIS = 5_000;
+
+  // writeUTF can't encode more than 64KB, progress lines are truncated well below that
+  static final int MAX_LINE_LENGTH = 8 * 1024;
+
+  // hex SHA-1 of the content, then the sanitized file name
+  static final Pattern CACHE_KEY = Pattern.compile("[0-9a-f]{40}-[A-Za-z0-9._-]+");
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int CHALLENGE_BYTES = 32;
+
+  private InjectorProtocol() {}
+
+  static String newChallenge() {
+    byte[] challenge = new byte[CHALLENGE_BYTES];
+    new SecureRandom().nextBytes(challenge);
+    return hex(challenge);
+  }
+
+  /**
+   * @param token the token shared by the coordinator and the agent
+   * @param challenge the challenge sent by the agent
+   * @return the response proving the knowledge of the token, without sending it
+   */
+  static String authenticate(String token, String challenge) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(new SecretKeySpec(token.getBytes(UTF_8), "HmacSHA256"));
+      return hex(mac.doFinal(challenge.getBytes(UTF_8)));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String hex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+    out.writeInt(values.size());
+    for (String value : values) {
+      out.writeUTF(value);
+    }
+  }
+
+  static List<String> readStrings(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    List<String> values = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      values.add(in.readUTF());
+    }
+    return values;
+  }
+
+  static void writeFile(DataOutputStream out, Path file) throws IOException {
+    out.writeLong(Files.size(file));
+    try (InputStream is = Files.newInputStream(file)) {
+      copy(is, out, Long.MAX_VALUE);
+    }
+  }
+
+  static void readFile(DataInputStream in, Path target) throws IOException {
+    long length = in.readLong();
+    Files.createDirectories(target.getParent());
+    try (OutputStream os = Files.newOutputStream(target)) {
+      long copied = copy(in, os, length);
+      if (copied != length) {
+        throw new EOFException("Expected " + length + " bytes for " + target + ", got " + copied);
+      }
+    }
+  }
+
+  private static long copy(InputStream in, OutputStream out, long limit) throws IOException {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    long copied = 0;
+    while (copied < limit) {
+      int read = in.read(buffer, 0, (int) Math.min(buffer.length, limit - copied));
+      if (read < 0) {
+        break;
+      }
+      out.write(buffer, 0, read);
+      copied += read;
+    }
+    return copied;
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Locale;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * JUnit XML report of a run, with one test case per request name and its response time statistics
+ * as properties, so that CI servers can chart them per endpoint.
+ *
+ * <p>The document is streamed, so the memory used to write it doesn't depend on the number of
+ * requests.
+ */
+final class JUnitReport {
+
+  private static final double[] PERCENTILES = {50, 75, 95, 99};
+
+  private JUnitReport() {}
+
+  /**
+   * Writes the report of a run.
+   *
+   * @param statistics the statistics of the run
+   * @param file the file to write
+   * @throws IOException if the file can't be written
+   */
+  static void write(SimulationStatistics statistics, File file) throws IOException {
+    Files.createDirectories(file.getParentFile().toPath());
+    try (OutputStream os =
+        new BufferedOutputStream(
+            Files.newOutputStream(file.toPath()), SimulationLog.BUFFER_SIZE)) {
+      XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(os, "UTF-8");
+      try {
+        write(statistics, writer);
+      } finally {
+        writer.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException("Could not write JUnit report " + file, e);
+    }
+  }
+
+  private static void write(SimulationStatistics statistics, XMLStreamWriter writer)
+      throws XMLStreamException {
+    String className = statistics.getSimulationClass();
+    writer.writeStartDocument("UTF-8", "1.0");
+    writer.writeCharacters("\n");
+    writer.writeStartElement("testsuite");
+    writer.writeAttribute("name", className);
+    writer.writeAttribute("tests", String.valueOf(statistics.getRequests().size()));
+    writer.writeAttribute("failures", "0");
+    writer.writeAttribute("errors", "0");
+    writer.writeAttribute("skipped", "0");
+    writer.writeAttribute("time", seconds(statistics.getDurationMillis()));
+    writer.writeCharacters("\n");
+
+    for (SimulationStatistics.RequestStatistics request : statistics.getRequests()) {
+      writer.writeStartElement("testcase");
+      writer.writeAttribute("classname", className);
+      writer.writeAttribute("name", request.getName());
+      writer.writeAttribute("time", seconds(request.getMean()));
+      writer.writeStartElement("properties");
+      writeProperty(writer, "count", String.valueOf(request.getCount()));
+      writeProperty(writer, "ko", String.valueOf(request.getKoCount()));
+      writeProperty(writer, "min", String.valueOf(request.getMin()));
+      writeProperty(writer, "max", String.valueOf(request.getMax()));
+      writeProperty(writer, "mean", String.format(Locale.ROOT, "%.1f", request.getMean()));
+      for (double percentile : PERCENTILES) {
+        writeProperty(
+            writer, "p" + (int) percentile, String.valueOf(request.getPercentile(percentile)));
+      }
+      writeProperty(
+          writer, "rps", String.format(Locale.ROOT, "%.3f", statistics.getThroughput(request)));
+      writer.writeEndElement();
+      writer.writeEndElement();
+      writer.writeCharacters("\n");
+    }
+
+    writer.writeEndElement();
+    writer.writeEndDocument();
+  }
+
+  private static void writeProperty(XMLStreamWriter writer, String name, String value)
+      throws XMLStreamException {
+    writer.writeEmptyElement("property");
+    writer.writeAttribute("name", name);
+    writer.writeAttribute("value", value);
+  }
+
+  private static String seconds(double millis) {
+    return String.format(Locale.ROOT, "%.3f", millis / 1000);
+  }
+}
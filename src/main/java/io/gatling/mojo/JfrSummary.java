@@ -0,0 +1,176 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Summary of a Flight Recorder recording of an injector: GC pauses, allocation rate, safepoint time
+ * and hottest frames, to check at a glance that the injector itself doesn't skew the results.
+ */
+final class JfrSummary {
+
+  static final String RECORDING_FILE = "injector.jfr";
+  static final String SUMMARY_FILE = "injector-jfr.txt";
+
+  private static final int HOTTEST_FRAMES = 10;
+
+  private long gcCount;
+  private Duration gcPauses = Duration.ZERO;
+  private Duration longestGcPause = Duration.ZERO;
+  // JDK 16+ recordings have allocation samples, older ones only TLAB events
+  private long sampledAllocatedBytes;
+  private long tlabAllocatedBytes;
+  private Duration safepoints = Duration.ZERO;
+  private long executionSamples;
+  private final Map<String, Long> topFrames = new HashMap<>();
+  private Instant start;
+  private Instant end;
+
+  /**
+   * JVM options starting a recording with the profile settings, dumped to the given file on exit.
+   *
+   * @param jvmArgs the JVM options of the fork
+   * @param recording the file to dump the recording to
+   * @return the JVM options of the fork, with the recording options
+   */
+  static List<String> jvmArgs(List<String> jvmArgs, File recording) {
+    List<String> args = new ArrayList<>(jvmArgs);
+    args.add(
+        "-XX:StartFlightRecording=settings=profile,dumponexit=true,filename="
+            + recording.getAbsolutePath());
+    return args;
+  }
+
+  /**
+   * Reads a recording in a single pass over its events.
+   *
+   * @param recording the recording
+   * @return the summary
+   * @throws IOException if the recording can't be read
+   */
+  static JfrSummary read(Path recording) throws IOException {
+    JfrSummary summary = new JfrSummary();
+    try (RecordingFile file = new RecordingFile(recording)) {
+      while (file.hasMoreEvents()) {
+        summary.record(file.readEvent());
+      }
+    }
+    return summary;
+  }
+
+  private void record(RecordedEvent event) {
+    if (start == null || event.getStartTime().isBefore(start)) {
+      start = event.getStartTime();
+    }
+    if (end == null || event.getEndTime().isAfter(end)) {
+      end = event.getEndTime();
+    }
+
+    switch (event.getEventType().getName()) {
+      case "jdk.GarbageCollection":
+        gcCount++;
+        gcPauses = gcPauses.plus(event.getDuration("sumOfPauses"));
+        if (event.getDuration("longestPause").compareTo(longestGcPause) > 0) {
+          longestGcPause = event.getDuration("longestPause");
+        }
+        break;
+      case "jdk.ObjectAllocationSample":
+        sampledAllocatedBytes += event.getLong("weight");
+        break;
+      case "jdk.ObjectAllocationInNewTLAB":
+        tlabAllocatedBytes += event.getLong("tlabSize");
+        break;
+      case "jdk.ObjectAllocationOutsideTLAB":
+        tlabAllocatedBytes += event.getLong("allocationSize");
+        break;
+      case "jdk.SafepointBegin":
+        safepoints = safepoints.plus(event.getDuration());
+        break;
+      case "jdk.ExecutionSample":
+        executionSamples++;
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace != null && !stackTrace.getFrames().isEmpty()) {
+          RecordedFrame frame = stackTrace.getFrames().get(0);
+          String method =
+              frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+          topFrames.merge(method, 1L, Long::sum);
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  long getGcCount() {
+    return gcCount;
+  }
+
+  Duration getGcPauses() {
+    return gcPauses;
+  }
+
+  long getExecutionSamples() {
+    return executionSamples;
+  }
+
+  /** @return the summary, one line per metric then one line per hottest frame */
+  List<String> lines() {
+    List<String> lines = new ArrayList<>();
+    double seconds = start == null ? 0 : Duration.between(start, end).toMillis() / 1000.0;
+    lines.add(String.format(Locale.ROOT, "Recording duration: %.1fs", seconds));
+    lines.add(
+        String.format(
+            Locale.ROOT,
+            "GC pauses: %d collections, %dms total, %dms longest",
+            gcCount,
+            gcPauses.toMillis(),
+            longestGcPause.toMillis()));
+    long allocatedBytes = sampledAllocatedBytes > 0 ? sampledAllocatedBytes : tlabAllocatedBytes;
+    lines.add(
+        String.format(
+            Locale.ROOT,
+            "Allocation rate: %.1f MB/s",
+            seconds == 0 ? 0 : allocatedBytes / seconds / (1024 * 1024)));
+    lines.add(String.format(Locale.ROOT, "Safepoints: %dms total", safepoints.toMillis()));
+    lines.add("Hottest frames (" + executionSamples + " samples):");
+    topFrames.entrySet().stream()
+        .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+        .limit(HOTTEST_FRAMES)
+        .forEach(
+            frame ->
+                lines.add(
+                    String.format(
+                        Locale.ROOT,
+                        "  %5.1f%% %s",
+                        frame.getValue() * 100.0 / executionSamples,
+                        frame.getKey())));
+    return lines;
+  }
+}
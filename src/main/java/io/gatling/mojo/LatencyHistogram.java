@@ -0,0 +1,108 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import java.util.Arrays;
+
+/**
+ * Memory bounded histogram of response times in milliseconds.
+ *
+ * <p>Values below 64 are counted exactly; above that, every power of two is split into 32 linear
+ * sub-buckets, so percentiles are accurate to about 3% with at most a couple of thousand counters,
+ * however many values are recorded.
+ */
+final class LatencyHistogram {
+
+  private static final int EXACT_LIMIT = 64;
+  private static final int EXACT_BITS = 6;
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private long[] counts = new long[EXACT_LIMIT];
+  private long count;
+  private long sum;
+  private long min = Long.MAX_VALUE;
+  private long max = Long.MIN_VALUE;
+
+  void record(long value) {
+    long v = Math.max(0, value);
+    int index = indexOf(v);
+    if (index >= counts.length) {
+      counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length + SUB_BUCKETS * 4));
+    }
+    counts[index]++;
+    count++;
+    sum += v;
+    min = Math.min(min, v);
+    max = Math.max(max, v);
+  }
+
+  long getCount() {
+    return count;
+  }
+
+  long getMin() {
+    return count == 0 ? 0 : min;
+  }
+
+  long getMax() {
+    return count == 0 ? 0 : max;
+  }
+
+  double getMean() {
+    return count == 0 ? 0 : (double) sum / count;
+  }
+
+  /**
+   * @param percentile the percentile, between 0 and 100
+   * @return the value at the given percentile, 0 if the histogram is empty
+   */
+  long getPercentile(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(Math.max(valueOf(i), min), max);
+      }
+    }
+    return max;
+  }
+
+  private static int indexOf(long value) {
+    if (value < EXACT_LIMIT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return EXACT_LIMIT + (exponent - EXACT_BITS) * SUB_BUCKETS + subBucket;
+  }
+
+  // middle of the bucket
+  private static long valueOf(int index) {
+    if (index < EXACT_LIMIT) {
+      return index;
+    }
+    int exponent = (index - EXACT_LIMIT) / SUB_BUCKETS + EXACT_BITS;
+    int subBucket = (index - EXACT_LIMIT) % SUB_BUCKETS;
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    long lower = (1L << exponent) + subBucket * width;
+    return lower + width / 2;
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static io.gatling.mojo.MojoConstants.GATLING_MAIN_CLASS;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.toolchain.Toolchain;
+
+/**
+ * Mojo to merge the simulation logs of several runs, e.g. from parallel injectors, into a new run
+ * and generate a combined report for it.
+ */
+@Mojo(
+    name = "merge",
+    defaultPhase = LifecyclePhase.INTEGRATION_TEST,
+    requiresDependencyResolution = ResolutionScope.TEST)
+public final class MergeMojo extends AbstractGatlingExecutionMojo {
+
+  /**
+   * The run directories to merge, either names of directories in the results folder or absolute
+   * paths.
+   */
+  @Parameter(property = "gatling.merge.runDirectories", required = true)
+  private List<String> runDirectories;
+
+  /** Name of the run directory to create in the results folder. By default merged-timestamp. */
+  @Parameter(property = "gatling.merge.runDirectory")
+  private String mergedRunDirectory;
+
+  /** Merge the simulation logs but does not generate reports. By default false. */
+  @Parameter(property = "gatling.noReports", defaultValue = "false")
+  private boolean noReports;
+
+  /** Extra JVM arguments to pass when generating the reports. */
+  @Parameter(property = "gatling.jvmArgs")
+  private List<String> jvmArgs;
+
+  /** Override Gatling's default JVM args, instead of replacing them. */
+  @Parameter(property = "gatling.overrideJvmArgs", defaultValue = "false")
+  private boolean overrideJvmArgs;
+
+  /**
+   * Size the heap of the process generating reports for the merged simulation logs. When the
+   * reports can't fit in the memory of the host, summaries are written instead. By default, the
+   * heap is sized unless the JVM args set an explicit -Xmx. Set to true to replace an explicit -Xmx
+   * too, or to false to keep the JVM args as is.
+   */
+  @Parameter(property = "gatling.reports.autoSizeHeap")
+  private Boolean autoSizeReportHeap;
+
+  /** Propagate System properties to forked processes. */
+  @Parameter(property = "gatling.propagateSystemProperties", defaultValue = "true")
+  private boolean propagateSystemProperties;
+
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException {
+    if (skip) {
+      getLog().info("Skipping events-gatling-maven-plugin");
+      return;
+    }
+
+    File runDirectory = mergeSimulationLogs();
+
+    if (!noReports) {
+      generateReports(runDirectory);
+    }
+
+    try (BufferedWriter writer =
+        Files.newBufferedWriter(resultsFolder.toPath().resolve(LAST_RUN_FILE))) {
+      writer.write(runDirectory.getName() + System.lineSeparator());
+    } catch (IOException e) {
+      throw new MojoExecutionException("Could not record merged run.", e);
+    }
+  }
+
+  private File mergeSimulationLogs() throws MojoExecutionException, MojoFailureException {
+    String name =
+        mergedRunDirectory != null
+            ? mergedRunDirectory
+            : "merged-" + new SimpleDateFormat("yyyyMMddHHmmssSSS").format(new Date());
+    File runDirectory = new File(resultsFolder, name);
+    if (runDirectory.exists()) {
+      throw new MojoFailureException(
+          "Run directory "
+              + runDirectory
+              + " already exists, pick another gatling.merge.runDirectory");
+    }
+
+    try {
+      List<Path> inputs = new ArrayList<>();
+      for (String directory : runDirectories) {
+        File input = new File(directory);
+        if (!input.isAbsolute()) {
+          input = new File(resultsFolder, directory);
+        }
+        List<Path> logs = SimulationLog.simulationLogs(input);
+        if (logs.isEmpty()) {
+          throw new MojoFailureException("No simulation log found in run directory " + directory);
+        }
+        inputs.addAll(logs);
+      }
+
+      Files.createDirectories(resultsFolder.toPath());
+      // fails if another merge created it in the meantime
+      Files.createDirectory(runDirectory.toPath());
+      long start = System.currentTimeMillis();
+      long records =
+          SimulationLogMerger.merge(
+              inputs, runDirectory.toPath().resolve(SimulationLog.FILE_NAME));
+      getLog()
+          .info(
+              "Merged "
+                  + records
+                  + " records from "
+                  + inputs.size()
+                  + " simulation logs into "
+                  + runDirectory.getName()
+                  + " in "
+                  + (System.currentTimeMillis() - start)
+                  + "ms");
+    } catch (IOException e) {
+      throw new MojoExecutionException("Could not merge simulation logs.", e);
+    }
+    return runDirectory;
+  }
+
+  private void generateReports(File runDirectory)
+      throws MojoExecutionException, MojoFailureException {
+    try {
+      List<String> args = new ArrayList<>();
+      addArg(args, "rf", resultsFolder.getCanonicalPath());
+      addArg(args, "ro", runDirectory.getName());
+
+      List<String> reportJvmArgs =
+          reportJvmArgs(gatlingJvmArgs(jvmArgs, overrideJvmArgs), autoSizeReportHeap, runDirectory);
+      if (reportJvmArgs == null) {
+        return;
+      }
+
+      Toolchain toolchain = toolchainManager.getToolchainFromBuildContext("jdk", session);
+      newFork(
+              GATLING_MAIN_CLASS,
+              buildTestClasspath(),
+              reportJvmArgs,
+              args,
+              toolchain,
+              propagateSystemProperties,
+              null)
+          .run();
+    } catch (Fork.ForkException e) {
+      if (e.exitValue == 2) {
+        throw new MojoFailureException("Gatling simulation assertions failed !", e);
+      }
+      throw new MojoExecutionException("Report generation failed.", e);
+    } catch (Exception e) {
+      throw new MojoExecutionException("Report generation failed.", e);
+    }
+  }
+}
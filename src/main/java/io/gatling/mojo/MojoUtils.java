@@ -22,6 +22,8 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -136,4 +138,11 @@ public final class MojoUtils {
         .filter(artifact -> artifact.getGroupId().equals(groupId))
         .collect(Collectors.toList());
   }
+
+  static boolean isOnPath(String command) {
+    String path = System.getenv("PATH");
+    return path != null
+        && Arrays.stream(path.split(File.pathSeparator))
+            .anyMatch(dir -> Files.isExecutable(Paths.get(dir, command)));
+  }
 }
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.gatling.plugin.io.PluginLogger;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the resource usage of a forked injector from {@literal /proc} at a fixed interval and
+ * writes it as a CSV time series, so that an overloaded injector can be told apart from a slow
+ * system under test.
+ *
+ * <p>Every sample records the CPU used over the interval, in cores and in percent of the CPUs the
+ * process may run on, e.g. the ones it's pinned to, the resident set size, the thread count, and
+ * the context switches and I/O bytes over the interval. Only Linux provides {@literal /proc};
+ * elsewhere, nothing is sampled.
+ */
+final class ProcessSampler implements Closeable {
+
+  static final String HEADER =
+      "timestamp,cpuCores,cpuPercent,rssKb,threads,voluntaryCtxSwitches,"
+          + "involuntaryCtxSwitches,readBytes,writeBytes";
+
+  /** CPU usage, in percent of the allowed CPUs, above which the injector counts as saturated. */
+  static final double SATURATION_PERCENT = 90;
+
+  // saturated samples in a row before warning during the run
+  private static final int SATURATION_WARNING_SAMPLES = 5;
+
+  // USER_HZ, the unit of the CPU times of /proc/<pid>/stat, is 100 on all mainstream kernels
+  private static final double CLOCK_TICKS_PER_SECOND = 100;
+
+  private final long pid;
+  private final Path output;
+  private final Duration interval;
+  private final PluginLogger log;
+  private final int cores = Runtime.getRuntime().availableProcessors();
+  private final ScheduledExecutorService executor =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "gatling-process-sampler");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private BufferedWriter writer;
+  private Sample previous;
+  private int samples;
+  private int saturatedSamples;
+  private int consecutiveSaturatedSamples;
+
+  ProcessSampler(long pid, Path output, Duration interval, PluginLogger log) {
+    this.pid = pid;
+    this.output = output;
+    this.interval = interval;
+    this.log = log;
+  }
+
+  static boolean isSupported() {
+    return Files.isDirectory(Paths.get("/proc/self"));
+  }
+
+  ProcessSampler start() throws IOException {
+    Files.createDirectories(output.getParent());
+    writer = Files.newBufferedWriter(output, UTF_8);
+    writer.write(HEADER);
+    writer.newLine();
+    executor.scheduleAtFixedRate(this::sample, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    return this;
+  }
+
+  private void sample() {
+    Sample current;
+    try {
+      current = Sample.read(pid);
+    } catch (IOException | RuntimeException e) {
+      // the process is gone, or /proc isn't readable
+      return;
+    }
+    Sample last = previous;
+    previous = current;
+    if (last == null) {
+      return;
+    }
+
+    double seconds = (current.timestamp - last.timestamp) / 1000.0;
+    if (seconds <= 0) {
+      return;
+    }
+    double cpuCores = (current.cpuTicks - last.cpuTicks) / CLOCK_TICKS_PER_SECOND / seconds;
+    // pinned injectors saturate well before using all the cores of the host
+    int allowedCpus = current.allowedCpus > 0 ? current.allowedCpus : cores;
+    double cpuPercent = cpuCores * 100 / allowedCpus;
+    samples++;
+    if (cpuPercent >= SATURATION_PERCENT) {
+      saturatedSamples++;
+      if (++consecutiveSaturatedSamples == SATURATION_WARNING_SAMPLES) {
+        log.error(
+            String.format(
+                Locale.ROOT,
+                "Injector process %d is CPU saturated (%.0f%% of %d cores), response times may be"
+                    + " skewed by the injector itself",
+                pid,
+                cpuPercent,
+                allowedCpus));
+      }
+    } else {
+      consecutiveSaturatedSamples = 0;
+    }
+
+    try {
+      writer.write(
+          String.format(
+              Locale.ROOT,
+              "%d,%.2f,%.1f,%d,%d,%d,%d,%d,%d",
+              current.timestamp,
+              cpuCores,
+              cpuPercent,
+              current.rssKb,
+              current.threads,
+              current.voluntaryCtxSwitches - last.voluntaryCtxSwitches,
+              current.involuntaryCtxSwitches - last.involuntaryCtxSwitches,
+              current.readBytes - last.readBytes,
+              current.writeBytes - last.writeBytes));
+      writer.newLine();
+    } catch (IOException e) {
+      log.error("Could not write injector sample: " + e.getMessage());
+    }
+  }
+
+  int getSamples() {
+    return samples;
+  }
+
+  int getSaturatedSamples() {
+    return saturatedSamples;
+  }
+
+  /** Stops sampling and reports how long the injector was saturated during the run. */
+  @Override
+  public void close() throws IOException {
+    // no interruption, it would close the file channel of a sample being written
+    executor.shutdown();
+    try {
+      executor.awaitTermination(interval.toMillis() + 1000, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (writer != null) {
+      writer.close();
+    }
+    if (saturatedSamples > 0) {
+      log.error(
+          String.format(
+              Locale.ROOT,
+              "Injector process %d was CPU saturated during %.0f%% of the run, see %s",
+              pid,
+              saturatedSamples * 100.0 / samples,
+              output));
+    }
+  }
+
+  private static final class Sample {
+    private final long timestamp;
+    private final long cpuTicks;
+    private final long threads;
+    private int allowedCpus;
+    private long rssKb;
+    private long voluntaryCtxSwitches;
+    private long involuntaryCtxSwitches;
+    private long readBytes;
+    private long writeBytes;
+
+    private Sample(long timestamp, long cpuTicks, long threads) {
+      this.timestamp = timestamp;
+      this.cpuTicks = cpuTicks;
+      this.threads = threads;
+    }
+
+    private static Sample read(long pid) throws IOException {
+      Path proc = Paths.get("/proc", String.valueOf(pid));
+      long timestamp = System.currentTimeMillis();
+
+      // the command name may contain spaces and parentheses, fields are counted after it
+      String stat = new String(Files.readAllBytes(proc.resolve("stat")), UTF_8);
+      String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+      // utime, stime and num_threads are fields 14, 15 and 20, the state being field 3
+      Sample sample =
+          new Sample(
+              timestamp,
+              Long.parseLong(fields[11]) + Long.parseLong(fields[12]),
+              Long.parseLong(fields[17]));
+
+      for (String line : Files.readAllLines(proc.resolve("status"), UTF_8)) {
+        if (line.startsWith("VmRSS:")) {
+          sample.rssKb = value(line);
+        } else if (line.startsWith("Cpus_allowed_list:")) {
+          sample.allowedCpus =
+              CpuAffinity.parseCpuList(line.substring(line.indexOf(':') + 1)).size();
+        } else if (line.startsWith("voluntary_ctxt_switches:")) {
+          sample.voluntaryCtxSwitches = value(line);
+        } else if (line.startsWith("nonvoluntary_ctxt_switches:")) {
+          sample.involuntaryCtxSwitches = value(line);
+        }
+      }
+
+      Path io = proc.resolve("io");
+      if (Files.isReadable(io)) {
+        List<String> lines;
+        try {
+          lines = Files.readAllLines(io, UTF_8);
+        } catch (IOException e) {
+          // restricted by ptrace access mode on some hosts
+          return sample;
+        }
+        for (String line : lines) {
+          if (line.startsWith("read_bytes:")) {
+            sample.readBytes = value(line);
+          } else if (line.startsWith("write_bytes:")) {
+            sample.writeBytes = value(line);
+          }
+        }
+      }
+      return sample;
+    }
+
+    // "Name:   1234 kB"
+    private static long value(String line) {
+      String value = line.substring(line.indexOf(':') + 1).trim();
+      int space = value.indexOf(' ');
+      return Long.parseLong(space < 0 ? value : value.substring(0, space));
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Semaphore;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Limits the Gatling forks running at the same time across the modules of a parallel build, so
+ * that load tests of different modules don't skew each other's results.
+ *
+ * <p>The plugin classes are shared by all the modules of a build, so there is one limiter per
+ * build, created with the capacity configured by the first execution that needs it. Executions
+ * acquire a weight out of that capacity, waiting in arrival order when it's exhausted.
+ */
+final class ReactorForkLimiter {
+
+  // weak keys, so that embedded builds don't leak limiters
+  private static final Map<Object, ReactorForkLimiter> LIMITERS = new WeakHashMap<>();
+
+  private final int capacity;
+  private final Semaphore permits;
+
+  private ReactorForkLimiter(int capacity) {
+    this.capacity = capacity;
+    this.permits = new Semaphore(capacity, true);
+  }
+
+  /**
+   * @param build an object shared by all the modules of the build, e.g. its execution request
+   * @param capacity the capacity, only used if there is no limiter for the build yet
+   * @param log the log to report a capacity different from the one of the build to
+   * @return the limiter of the build
+   */
+  static synchronized ReactorForkLimiter forBuild(Object build, int capacity, Log log) {
+    ReactorForkLimiter limiter =
+        LIMITERS.computeIfAbsent(build, b -> new ReactorForkLimiter(capacity));
+    if (limiter.capacity != capacity) {
+      log.warn(
+          "Ignoring a capacity of "
+              + capacity
+              + " Gatling slots, an earlier execution of the build set it to "
+              + limiter.capacity);
+    }
+    return limiter;
+  }
+
+  int getCapacity() {
+    return capacity;
+  }
+
+  int getAvailable() {
+    return permits.availablePermits();
+  }
+
+  /**
+   * Waits until the given weight is available.
+   *
+   * @param weight the weight, capped to the capacity so that heavy executions can still run alone
+   * @param log the log to report waits to
+   * @return the slot, to close once the forks have exited
+   * @throws InterruptedException if interrupted while waiting
+   */
+  Slot acquire(int weight, Log log) throws InterruptedException {
+    int permits = Math.max(1, Math.min(weight, capacity));
+    if (!this.permits.tryAcquire(permits)) {
+      log.info(
+          "Waiting for "
+              + permits
+              + " of the "
+              + capacity
+              + " Gatling slots of the build, "
+              + this.permits.availablePermits()
+              + " free");
+      this.permits.acquire(permits);
+    }
+    return () -> this.permits.release(permits);
+  }
+
+  interface Slot extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
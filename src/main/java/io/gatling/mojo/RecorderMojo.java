@@ -21,7 +21,16 @@ import static io.gatling.mojo.MojoConstants.RECORDER_MAIN_CLASS;
 import io.gatling.plugin.GatlingConstants;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -29,8 +38,12 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.toolchain.Toolchain;
+import org.codehaus.plexus.util.DirectoryScanner;
 
-/** Mojo to run Gatling Recorder. */
+/**
+ * Mojo to run Gatling Recorder, either interactively, or headlessly to convert a folder of HAR
+ * files into simulations.
+ */
 @Mojo(
     name = "recorder",
     defaultPhase = LifecyclePhase.INTEGRATION_TEST,
@@ -83,6 +96,20 @@ public final class RecorderMojo extends AbstractGatlingMojo {
   @Parameter(property = "gatling.recorder.followRedirect", alias = "fr")
   private Boolean followRedirect;
 
+  /**
+   * Folder of HAR files to convert headlessly, instead of recording through the proxy. Every HAR
+   * file of the folder and its subfolders becomes a simulation, named after the file.
+   */
+  @Parameter(property = "gatling.recorder.harFolder")
+  private File harFolder;
+
+  /**
+   * Number of HAR files converted in parallel, each by its own recorder process. By default 0,
+   * meaning one per core.
+   */
+  @Parameter(property = "gatling.recorder.harForks", defaultValue = "0")
+  private int harForks;
+
   @Override
   public void execute() throws MojoExecutionException, MojoFailureException {
     if (simulationsFolder == null) {
@@ -93,8 +120,13 @@ public final class RecorderMojo extends AbstractGatlingMojo {
 
     try {
       List<String> testClasspath = buildTestClasspath();
-      List<String> recorderArgs = recorderArgs();
       Toolchain toolchain = toolchainManager.getToolchainFromBuildContext("jdk", session);
+      if (harFolder != null) {
+        convertHarFiles(testClasspath, toolchain);
+        return;
+      }
+
+      List<String> recorderArgs = recorderArgs(className);
       Fork forkedRecorder =
           newFork(
               RECORDER_MAIN_CLASS,
@@ -112,7 +144,99 @@ public final class RecorderMojo extends AbstractGatlingMojo {
     }
   }
 
-  private List<String> recorderArgs() throws Exception {
+  private void convertHarFiles(List<String> testClasspath, Toolchain toolchain)
+      throws Exception {
+    if (!harFolder.isDirectory()) {
+      throw new MojoExecutionException("HAR folder " + harFolder + " doesn't exist");
+    }
+    DirectoryScanner scanner = new DirectoryScanner();
+    scanner.setBasedir(harFolder);
+    scanner.setIncludes(new String[] {"**/*.har"});
+    scanner.scan();
+    String[] harFiles = scanner.getIncludedFiles();
+    Arrays.sort(harFiles);
+    if (harFiles.length == 0) {
+      getLog().warn("No HAR file in " + harFolder);
+      return;
+    }
+
+    int forks =
+        Math.min(
+            harFiles.length, harForks > 0 ? harForks : Runtime.getRuntime().availableProcessors());
+    getLog()
+        .info("Converting " + harFiles.length + " HAR files with " + forks + " recorder processes");
+    Set<String> classNames = new HashSet<>();
+    Map<String, Future<?>> conversions = new LinkedHashMap<>();
+    ExecutorService executor = Executors.newFixedThreadPool(forks);
+    try {
+      for (String harFile : harFiles) {
+        String baseClassName = simulationClassName(new File(harFile).getName());
+        String simulationClassName = baseClassName;
+        // files with the same name in different folders
+        for (int i = 2; !classNames.add(simulationClassName); i++) {
+          simulationClassName = baseClassName + i;
+        }
+        List<String> args = recorderArgs(simulationClassName);
+        addArg(args, "m", "Har");
+        addArg(args, "hf", new File(harFolder, harFile).getCanonicalPath());
+        addArg(args, "cli", true);
+        Fork fork =
+            newFork(
+                    RECORDER_MAIN_CLASS,
+                    testClasspath,
+                    GatlingConstants.DEFAULT_JVM_OPTIONS_BASE,
+                    args,
+                    toolchain,
+                    true,
+                    null)
+                .redirectOutput(line -> getLog().info("[" + harFile + "] " + line));
+        conversions.put(
+            harFile + " to " + simulationClassName,
+            executor.submit(
+                () -> {
+                  fork.run();
+                  return null;
+                }));
+      }
+
+      List<String> failures = new ArrayList<>();
+      for (Map.Entry<String, Future<?>> conversion : conversions.entrySet()) {
+        try {
+          conversion.getValue().get();
+          getLog().info("Converted " + conversion.getKey());
+        } catch (ExecutionException e) {
+          getLog().error("Could not convert " + conversion.getKey(), e.getCause());
+          failures.add(conversion.getKey());
+        }
+      }
+      if (!failures.isEmpty()) {
+        throw new MojoFailureException(
+            "Could not convert " + failures.size() + " HAR files: " + failures);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * @param harFileName the name of a HAR file
+   * @return the name of the simulation class generated from it, in upper camel case
+   */
+  static String simulationClassName(String harFileName) {
+    String baseName = harFileName.replaceFirst("(?i)\\.har$", "");
+    StringBuilder className = new StringBuilder();
+    for (String word : baseName.split("[^A-Za-z0-9]+")) {
+      if (!word.isEmpty()) {
+        className.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+      }
+    }
+    if (className.length() == 0 || !Character.isJavaIdentifierStart(className.charAt(0))) {
+      className.insert(0, "Har");
+    }
+    return className.append("Simulation").toString();
+  }
+
+  private List<String> recorderArgs(String className) throws Exception {
     List<String> arguments = new ArrayList<>();
     addArg(arguments, "lp", localPort);
     addArg(arguments, "ph", proxyHost);
@@ -0,0 +1,415 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static io.gatling.mojo.InjectorProtocol.*;
+
+import io.perfana.eventscheduler.api.SchedulerExceptionHandler;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Drives a set of {@link InjectorAgent}s: ships the booter classpath, starts one shard per agent at
+ * a synchronized start time, streams back their progress and fetches their simulation logs.
+ */
+final class RemoteInjectorCoordinator implements Closeable {
+
+  private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+
+  // agents send heartbeats while their fork is silent, so only a dead agent stays silent that long
+  private static final Duration IDLE_TIMEOUT = Duration.ofSeconds(60);
+
+  private final List<AgentConnection> agents = new ArrayList<>();
+  private final List<Path> packedDirectories = new ArrayList<>();
+  private final Duration idleTimeout;
+  private final Log log;
+  private Duration maxRunDuration = Duration.ZERO;
+  private Duration stopGracePeriod = Fork.DEFAULT_STOP_GRACE_PERIOD;
+
+  /**
+   * Connects to the agents and authenticates with their token.
+   *
+   * @param injectors the agents, as {@literal host:port}
+   * @param token the token shared with the agents
+   * @param log the log
+   * @throws IOException if an agent can't be reached or rejects the token
+   */
+  RemoteInjectorCoordinator(List<String> injectors, String token, Log log) throws IOException {
+    this(injectors, token, IDLE_TIMEOUT, log);
+  }
+
+  /**
+   * @param idleTimeout the time after which an agent that sent nothing is considered dead, failing
+   *     its shard
+   */
+  RemoteInjectorCoordinator(List<String> injectors, String token, Duration idleTimeout, Log log)
+      throws IOException {
+    this.idleTimeout = idleTimeout;
+    this.log = log;
+    try {
+      for (String injector : injectors) {
+        agents.add(new AgentConnection(injector, token));
+      }
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * Stops the shards once they have run for the given duration, like their local forks would.
+   *
+   * @param maxRunDuration the maximum duration, zero for no limit
+   * @return this coordinator
+   */
+  RemoteInjectorCoordinator maxRunDuration(Duration maxRunDuration) {
+    this.maxRunDuration = maxRunDuration;
+    return this;
+  }
+
+  /**
+   * Sets how long a stopped shard may take to flush its results and exit before it's killed.
+   *
+   * @param stopGracePeriod the grace period
+   * @return this coordinator
+   */
+  RemoteInjectorCoordinator stopGracePeriod(Duration stopGracePeriod) {
+    this.stopGracePeriod = stopGracePeriod;
+    return this;
+  }
+
+  int getAgentCount() {
+    return agents.size();
+  }
+
+  /**
+   * Ships the classpath to every agent. Directories are packed into jars, and entries are keyed by
+   * their content so agents only receive what they don't have cached yet.
+   *
+   * @param classpath the classpath of the forked Gatling process
+   * @throws IOException if the classpath can't be read or shipped
+   */
+  void shipClasspath(List<String> classpath) throws IOException {
+    Map<String, Path> entries = new LinkedHashMap<>();
+    for (String element : classpath) {
+      File file = new File(element);
+      if (file.isDirectory()) {
+        Path jar = packDirectory(file.toPath());
+        packedDirectories.add(jar);
+        entries.put(cacheKey(jar, file.getName() + ".jar"), jar);
+      } else if (file.exists()) {
+        entries.put(cacheKey(file.toPath(), file.getName()), file.toPath());
+      }
+    }
+    List<String> keys = new ArrayList<>(entries.keySet());
+
+    for (AgentConnection agent : agents) {
+      agent.out.writeUTF(CLASSPATH);
+      writeStrings(agent.out, keys);
+      agent.out.flush();
+      agent.expect(MISSING);
+      List<String> missing = readStrings(agent.in);
+      log.info("Shipping " + missing.size() + "/" + keys.size() + " classpath entries to " + agent);
+      for (String key : missing) {
+        agent.out.writeUTF(key);
+        writeFile(agent.out, entries.get(key));
+      }
+      agent.out.flush();
+      agent.expect(READY);
+    }
+  }
+
+  /**
+   * Starts one shard per agent at the given time, and waits for all of them to exit.
+   *
+   * @return the exit value of every shard, in agent order
+   */
+  List<Integer> run(
+      String mainClass,
+      ShardedRun shardedRun,
+      List<String> jvmArgs,
+      List<String> args,
+      long startAt)
+      throws Exception {
+    for (int i = 0; i < agents.size(); i++) {
+      AgentConnection agent = agents.get(i);
+      synchronized (agent.out) {
+        agent.out.writeUTF(START);
+        agent.out.writeUTF(mainClass);
+        writeStrings(agent.out, shardedRun.shardJvmArgs(jvmArgs, i));
+        writeStrings(agent.out, args);
+        agent.out.writeLong(startAt);
+        agent.out.writeInt(i);
+        agent.out.writeInt(agents.size());
+        agent.out.writeLong(maxRunDuration.toMillis());
+        agent.out.writeLong(stopGracePeriod.toMillis());
+        agent.out.flush();
+      }
+    }
+
+    ExecutorService progressReaders = Executors.newFixedThreadPool(agents.size());
+    try {
+      List<Future<Integer>> exits = new ArrayList<>();
+      for (AgentConnection agent : agents) {
+        exits.add(progressReaders.submit(agent::awaitExit));
+      }
+      List<Integer> exitValues = new ArrayList<>();
+      for (Future<Integer> exit : exits) {
+        try {
+          exitValues.add(exit.get());
+        } catch (ExecutionException e) {
+          throw (Exception) e.getCause();
+        }
+      }
+      return exitValues;
+    } finally {
+      progressReaders.shutdownNow();
+    }
+  }
+
+  /**
+   * Fetches the simulation logs of every agent into the shard results folders of the run.
+   *
+   * @param shardedRun the run to store the simulation logs in
+   * @throws IOException if a simulation log can't be fetched
+   */
+  void fetchSimulationLogs(ShardedRun shardedRun) throws IOException {
+    for (int i = 0; i < agents.size(); i++) {
+      AgentConnection agent = agents.get(i);
+      agent.out.writeUTF(FETCH);
+      agent.out.flush();
+      agent.expect(FILES);
+      int count = agent.in.readInt();
+      Path shardResultsFolder = shardedRun.shardResultsFolder(i).toPath();
+      for (int j = 0; j < count; j++) {
+        Path target = shardResultsFolder.resolve(agent.in.readUTF()).normalize();
+        if (!target.startsWith(shardResultsFolder)) {
+          throw new IOException(agent + " sent a file outside of its results folder: " + target);
+        }
+        readFile(agent.in, target);
+      }
+      log.info("Fetched " + count + " simulation logs from " + agent);
+    }
+  }
+
+  SchedulerExceptionHandler getSchedulerExceptionHandler() {
+    return new SchedulerExceptionHandler() {
+      @Override
+      public void kill(String message) {
+        broadcast(KILL, message);
+      }
+
+      @Override
+      public void abort(String message) {
+        broadcast(ABORT, message);
+      }
+
+      @Override
+      public void stop(String message) {
+        broadcast(STOP, message);
+      }
+    };
+  }
+
+  private void broadcast(String command, String message) {
+    for (AgentConnection agent : agents) {
+      try {
+        synchronized (agent.out) {
+          agent.out.writeUTF(command);
+          agent.out.writeUTF(message == null ? "" : message);
+          agent.out.flush();
+        }
+      } catch (IOException e) {
+        log.error("Could not send " + command + " to " + agent, e);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    for (AgentConnection agent : agents) {
+      agent.close();
+    }
+    for (Path jar : packedDirectories) {
+      try {
+        Files.deleteIfExists(jar);
+      } catch (IOException e) {
+        log.debug("Could not delete " + jar, e);
+      }
+    }
+  }
+
+  private static Path packDirectory(Path directory) throws IOException {
+    Path jar = Files.createTempFile("gatling-classpath", ".jar");
+    try (JarOutputStream jos =
+            new JarOutputStream(new BufferedOutputStream(Files.newOutputStream(jar)));
+        Stream<Path> files = Files.walk(directory)) {
+      for (Path file : (Iterable<Path>) files.sorted()::iterator) {
+        if (Files.isRegularFile(file)) {
+          String name = directory.relativize(file).toString().replace(File.separatorChar, '/');
+          JarEntry entry = new JarEntry(name);
+          // constant timestamps so that unchanged directories produce the same key
+          entry.setTime(0);
+          jos.putNextEntry(entry);
+          Files.copy(file, jos);
+          jos.closeEntry();
+        }
+      }
+    }
+    return jar;
+  }
+
+  private static String cacheKey(Path file, String fileName) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    try (InputStream is = new DigestInputStream(Files.newInputStream(file), digest)) {
+      is.transferTo(OutputStream.nullOutputStream());
+    }
+    StringBuilder key = new StringBuilder();
+    for (byte b : digest.digest()) {
+      key.append(String.format("%02x", b));
+    }
+    return key.append('-').append(fileName.replaceAll("[^A-Za-z0-9._-]", "_")).toString();
+  }
+
+  private final class AgentConnection {
+    private final String address;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    private AgentConnection(String address, String token) throws IOException {
+      this.address = address;
+      int separator = address.lastIndexOf(':');
+      String host = separator < 0 ? address : address.substring(0, separator);
+      int port =
+          separator < 0
+              ? InjectorAgent.DEFAULT_PORT
+              : Integer.parseInt(address.substring(separator + 1));
+
+      socket = new Socket();
+      socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+      socket.setSoTimeout((int) idleTimeout.toMillis());
+      in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+      out.writeUTF(HELLO);
+      out.writeInt(VERSION);
+      out.flush();
+      expect(HELLO);
+      in.readInt();
+      String challenge = in.readUTF();
+      out.writeUTF(AUTH);
+      out.writeUTF(authenticate(token, challenge));
+      out.flush();
+      expect(READY);
+    }
+
+    private void expect(String expected) throws IOException {
+      String command = readCommand();
+      // a late heartbeat of the last run
+      while (HEARTBEAT.equals(command)) {
+        command = readCommand();
+      }
+      if (ERROR.equals(command)) {
+        throw new IOException(this + " failed: " + in.readUTF());
+      } else if (!expected.equals(command)) {
+        throw new IOException(this + " answered " + command + " instead of " + expected);
+      }
+    }
+
+    private String readCommand() throws IOException {
+      try {
+        return in.readUTF();
+      } catch (SocketTimeoutException e) {
+        throw new IOException(
+            this + " sent nothing for " + idleTimeout.toMillis() + "ms, giving up on it", e);
+      }
+    }
+
+    private int awaitExit() throws IOException {
+      while (true) {
+        String command = readCommand();
+        switch (command) {
+          case PROGRESS:
+            log.info("[" + address + "] " + in.readUTF());
+            break;
+          case HEARTBEAT:
+            break;
+          case EXIT:
+            return in.readInt();
+          case ERROR:
+            throw new IOException(this + " failed: " + in.readUTF());
+          default:
+            throw new IOException(this + " sent unexpected " + command);
+        }
+      }
+    }
+
+    private void close() {
+      try {
+        synchronized (out) {
+          out.writeUTF(BYE);
+          out.flush();
+        }
+      } catch (IOException e) {
+        // agent already gone
+      }
+      try {
+        socket.close();
+      } catch (IOException e) {
+        log.debug("Could not close connection to " + address, e);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "injector agent " + address;
+    }
+  }
+}
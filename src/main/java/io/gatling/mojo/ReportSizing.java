@@ -0,0 +1,259 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Estimates the heap Gatling needs to generate the reports of a run from a sampled scan of its
+ * simulation logs, so that reports of long soak tests don't fail with an out of memory error.
+ *
+ * <p>Report generation reads every record, but only keeps aggregates per request name and time
+ * bucket, so the estimate grows with the size of the logs and with the number of distinct request
+ * names. Names are counted in windows spread over the logs, without reading them entirely.
+ */
+final class ReportSizing {
+
+  // conservative heuristics, on the high side since running out of heap wastes the whole scan
+  private static final long BASE_HEAP_MB = 512;
+  private static final long HEAP_MB_PER_LOG_GB = 128;
+  private static final long HEAP_MB_PER_REQUEST_NAME = 8;
+
+  private static final int SAMPLED_WINDOWS = 32;
+  private static final int WINDOW_BYTES = 256 * 1024;
+
+  /** Part of the available memory of the host the report fork may take. */
+  private static final double AVAILABLE_MEMORY_RATIO = 0.8;
+
+  private final long logBytes;
+  private final int requestNames;
+
+  private ReportSizing(long logBytes, int requestNames) {
+    this.logBytes = logBytes;
+    this.requestNames = requestNames;
+  }
+
+  /**
+   * @param simulationLogs the simulation logs of the run
+   * @return the estimate
+   * @throws IOException if a simulation log can't be read
+   */
+  static ReportSizing estimate(List<Path> simulationLogs) throws IOException {
+    long logBytes = 0;
+    Set<String> requestNames = new HashSet<>();
+    for (Path log : simulationLogs) {
+      try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+        long size = channel.size();
+        logBytes += size;
+        int windows = (int) Math.min(SAMPLED_WINDOWS, size / WINDOW_BYTES + 1);
+        ByteBuffer window = ByteBuffer.allocate(WINDOW_BYTES);
+        for (int i = 0; i < windows; i++) {
+          long position = size * i / windows;
+          window.clear();
+          int read;
+          do {
+            read = channel.read(window, position + window.position());
+          } while (read > 0 && window.hasRemaining());
+          sampleRequestNames(
+              new String(window.array(), 0, window.position(), UTF_8), position > 0, requestNames);
+        }
+      }
+    }
+    return new ReportSizing(logBytes, requestNames.size());
+  }
+
+  private static void sampleRequestNames(
+      String window, boolean skipFirstLine, Set<String> requestNames) {
+    String[] lines = window.split("\n");
+    // the first and last lines of a window may be truncated
+    for (int i = skipFirstLine ? 1 : 0; i < lines.length - 1; i++) {
+      if (SimulationLog.REQUEST.equals(SimulationLog.recordType(lines[i]))) {
+        requestNames.add(
+            SimulationLog.column(lines[i], 1) + '\t' + SimulationLog.column(lines[i], 2));
+      }
+    }
+  }
+
+  long getLogBytes() {
+    return logBytes;
+  }
+
+  /** @return the distinct request names seen in the sampled windows */
+  int getRequestNames() {
+    return requestNames;
+  }
+
+  long getHeapMb() {
+    return BASE_HEAP_MB
+        + logBytes * HEAP_MB_PER_LOG_GB / (1024L * 1024 * 1024)
+        + requestNames * HEAP_MB_PER_REQUEST_NAME;
+  }
+
+  /**
+   * @param availableMemoryMb the memory available on the host
+   * @return true if the estimated heap fits in the memory available on the host
+   */
+  boolean fits(long availableMemoryMb) {
+    return getHeapMb() <= availableMemoryMb * AVAILABLE_MEMORY_RATIO;
+  }
+
+  /**
+   * Sizes the heap of the report fork for the estimate, unless the JVM options already give it at
+   * least as much, and picks the throughput oriented parallel collector, pauses not mattering when
+   * generating reports. The replaced options are logged.
+   *
+   * @param jvmArgs the JVM options of the load test
+   * @param totalMemoryMb the physical memory of the host, for the default maximum heap
+   * @param replaceExplicitHeap false to keep an explicit -Xmx, even when below the estimate
+   * @param log the log to report the replaced options to
+   * @return the JVM options of the report fork
+   */
+  List<String> jvmArgs(
+      List<String> jvmArgs, long totalMemoryMb, boolean replaceExplicitHeap, Log log) {
+    long configuredHeapMb = totalMemoryMb / 4;
+    String explicitHeap = null;
+    for (String jvmArg : jvmArgs) {
+      if (jvmArg.startsWith("-Xmx")) {
+        explicitHeap = jvmArg;
+      }
+    }
+    if (explicitHeap != null) {
+      try {
+        configuredHeapMb = parseSizeMb(explicitHeap.substring("-Xmx".length()));
+      } catch (NumberFormatException e) {
+        log.warn("Could not parse " + explicitHeap + ", keeping the JVM options of the reports");
+        return jvmArgs;
+      }
+    }
+    if (configuredHeapMb >= getHeapMb()) {
+      return jvmArgs;
+    }
+    if (explicitHeap != null && !replaceExplicitHeap) {
+      log.info(
+          "Keeping "
+              + explicitHeap
+              + " for the reports, below the estimated "
+              + getHeapMb()
+              + " MB, set gatling.reports.autoSizeHeap to true to replace it");
+      return jvmArgs;
+    }
+
+    List<String> sized = new ArrayList<>(jvmArgs.size() + 3);
+    List<String> replaced = new ArrayList<>();
+    for (String jvmArg : jvmArgs) {
+      if (jvmArg.startsWith("-Xmx")
+          || jvmArg.startsWith("-Xms")
+          || jvmArg.startsWith("-XX:MaxRAMPercentage")
+          || jvmArg.startsWith("-XX:InitialRAMPercentage")
+          || jvmArg.startsWith("-XX:+Use") && jvmArg.endsWith("GC")) {
+        replaced.add(jvmArg);
+      } else {
+        sized.add(jvmArg);
+      }
+    }
+    sized.add("-Xms" + getHeapMb() + "m");
+    sized.add("-Xmx" + getHeapMb() + "m");
+    sized.add("-XX:+UseParallelGC");
+    log.info(
+        "Sizing the heap of the reports for "
+            + this
+            + (replaced.isEmpty() ? "" : ", replacing " + String.join(" ", replaced)));
+    return sized;
+  }
+
+  /**
+   * Parses a heap size: 4g, 4096m, 4194304k or bytes.
+   *
+   * @param size the size
+   * @return the size in megabytes
+   * @throws NumberFormatException if the size can't be parsed
+   */
+  static long parseSizeMb(String size) {
+    String value = size.trim().toLowerCase(Locale.ROOT);
+    if (value.isEmpty()) {
+      throw new NumberFormatException("Empty size");
+    }
+    char unit = value.charAt(value.length() - 1);
+    long number =
+        Long.parseLong(Character.isDigit(unit) ? value : value.substring(0, value.length() - 1));
+    switch (unit) {
+      case 't':
+        return number * 1024 * 1024;
+      case 'g':
+        return number * 1024;
+      case 'm':
+        return number;
+      case 'k':
+        return number / 1024;
+      default:
+        return number / (1024 * 1024);
+    }
+  }
+
+  /** @return the physical memory of the host, in megabytes */
+  @SuppressWarnings("deprecation")
+  static long totalMemoryMb() {
+    return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+            .getTotalPhysicalMemorySize()
+        / (1024 * 1024);
+  }
+
+  /**
+   * @return the memory available to new processes, in megabytes, including reclaimable caches on
+   *     Linux
+   */
+  @SuppressWarnings("deprecation")
+  static long availableMemoryMb() {
+    try {
+      for (String line : Files.readAllLines(Paths.get("/proc/meminfo"), UTF_8)) {
+        if (line.startsWith("MemAvailable:")) {
+          String kb = line.substring(line.indexOf(':') + 1).trim();
+          return Long.parseLong(kb.substring(0, kb.indexOf(' '))) / 1024;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // not Linux
+    }
+    return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+            .getFreePhysicalMemorySize()
+        / (1024 * 1024);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        Locale.ROOT,
+        "%.1f GB of logs, %d request names, %d MB of heap",
+        logBytes / (1024.0 * 1024 * 1024),
+        requestNames,
+        getHeapMb());
+  }
+}
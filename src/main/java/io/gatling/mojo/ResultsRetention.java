@@ -0,0 +1,176 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.maven.plugin.logging.Log;
+import org.zeroturnaround.zip.ZipUtil;
+import org.zeroturnaround.zip.commons.FileUtilsV2_2;
+
+/**
+ * Retention policy for the run directories of the results folder.
+ *
+ * <p>Run directories beyond the configured count, age or total size are compressed into the
+ * {@literal archive} folder, or deleted if archiving is disabled, oldest first. Every archived run
+ * is recorded in a tab separated index file, so the results folder itself only ever holds the
+ * recent runs.
+ */
+final class ResultsRetention {
+
+  static final String ARCHIVE_FOLDER = "archive";
+  static final String INDEX_FILE = "index.txt";
+
+  private final File resultsFolder;
+  private final int maxRuns;
+  private final int maxAgeDays;
+  private final long maxSizeMb;
+  private final boolean archive;
+  private final Log log;
+
+  ResultsRetention(
+      File resultsFolder, int maxRuns, int maxAgeDays, long maxSizeMb, boolean archive, Log log) {
+    this.resultsFolder = resultsFolder;
+    this.maxRuns = maxRuns;
+    this.maxAgeDays = maxAgeDays;
+    this.maxSizeMb = maxSizeMb;
+    this.archive = archive;
+    this.log = log;
+  }
+
+  boolean isEnabled() {
+    return maxRuns > 0 || maxAgeDays > 0 || maxSizeMb > 0;
+  }
+
+  /**
+   * Applies the policy.
+   *
+   * @param keep run directories that must be kept whatever the policy, e.g. the ones of the current
+   *     execution
+   * @return the run directories that were archived or deleted
+   * @throws IOException if a run directory can't be archived or deleted
+   */
+  List<File> apply(Set<File> keep) throws IOException {
+    List<File> expired = new ArrayList<>();
+    if (!isEnabled()) {
+      return expired;
+    }
+
+    File[] directories =
+        resultsFolder.listFiles(
+            file ->
+                file.isDirectory()
+                    && !file.getName().equals(ARCHIVE_FOLDER)
+                    // results folders of forks and sharded runs still in progress
+                    && !file.getName().startsWith("."));
+    if (directories == null) {
+      return expired;
+    }
+
+    // newest first
+    List<File> runs = new ArrayList<>(Arrays.asList(directories));
+    runs.sort(Comparator.comparingLong(File::lastModified).reversed());
+
+    long now = System.currentTimeMillis();
+    long maxAgeMillis = TimeUnit.DAYS.toMillis(maxAgeDays);
+    long maxSizeBytes = maxSizeMb * 1024 * 1024;
+    long totalSize = 0;
+    int kept = 0;
+
+    for (File run : runs) {
+      if (keep.contains(run)) {
+        kept++;
+        totalSize += maxSizeBytes > 0 ? size(run.toPath()) : 0;
+        continue;
+      }
+      boolean tooMany = maxRuns > 0 && kept >= maxRuns;
+      boolean tooOld = maxAgeDays > 0 && now - run.lastModified() > maxAgeMillis;
+      long runSize = maxSizeBytes > 0 ? size(run.toPath()) : 0;
+      boolean tooBig = maxSizeBytes > 0 && totalSize + runSize > maxSizeBytes;
+
+      if (tooMany || tooOld || tooBig) {
+        expired.add(run);
+      } else {
+        kept++;
+        totalSize += runSize;
+      }
+    }
+
+    for (File run : expired) {
+      if (archive) {
+        archive(run);
+      } else {
+        log.info("Deleting expired run directory " + run.getName());
+      }
+      FileUtilsV2_2.deleteDirectory(run);
+    }
+    return expired;
+  }
+
+  private void archive(File run) throws IOException {
+    File archiveFolder = new File(resultsFolder, ARCHIVE_FOLDER);
+    Files.createDirectories(archiveFolder.toPath());
+    File zip = new File(archiveFolder, run.getName() + ".zip");
+    long runSize = size(run.toPath());
+    ZipUtil.pack(run, zip);
+    log.info("Archived expired run directory " + run.getName() + " to " + zip.getPath());
+
+    try (BufferedWriter writer =
+        Files.newBufferedWriter(
+            archiveFolder.toPath().resolve(INDEX_FILE),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND)) {
+      writer.write(
+          run.getName()
+              + '\t'
+              + run.lastModified()
+              + '\t'
+              + System.currentTimeMillis()
+              + '\t'
+              + runSize
+              + '\t'
+              + zip.length()
+              + System.lineSeparator());
+    }
+  }
+
+  private static long size(Path directory) throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      return files
+          .filter(Files::isRegularFile)
+          .mapToLong(
+              file -> {
+                try {
+                  return Files.size(file);
+                } catch (IOException e) {
+                  return 0;
+                }
+              })
+          .sum();
+    }
+  }
+}
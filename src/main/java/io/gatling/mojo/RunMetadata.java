@@ -0,0 +1,69 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/**
+ * Facts about how a run was executed, as opposed to what it measured, written next to its
+ * simulation log as a properties file.
+ */
+final class RunMetadata {
+
+  static final String FILE = "run.properties";
+
+  private final Properties properties = new Properties();
+
+  RunMetadata set(String key, Object value) {
+    properties.setProperty(key, String.valueOf(value));
+    return this;
+  }
+
+  String get(String key) {
+    return properties.getProperty(key);
+  }
+
+  /**
+   * @param directory the directory to write the metadata file to
+   * @throws IOException if the file can't be written
+   */
+  void write(File directory) throws IOException {
+    try (OutputStream os = Files.newOutputStream(new File(directory, FILE).toPath())) {
+      properties.store(os, "Gatling run metadata");
+    }
+  }
+
+  /**
+   * @param directory the run directory
+   * @return the metadata of the run, empty if it has none
+   * @throws IOException if the file can't be read
+   */
+  static RunMetadata read(File directory) throws IOException {
+    RunMetadata metadata = new RunMetadata();
+    File file = new File(directory, FILE);
+    if (file.isFile()) {
+      try (InputStream is = Files.newInputStream(file.toPath())) {
+        metadata.properties.load(is);
+      }
+    }
+    return metadata;
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Directory layout of a simulation sharded across several local injector processes.
+ *
+ * <p>Every shard writes its results below a {@literal shards} folder of a combined run directory.
+ * Once all shards are done, their simulation logs are gathered next to each other in the combined
+ * run directory, which Gatling can then turn into a single report with {@literal reportsOnly}.
+ *
+ * <p>While the shards run, the combined run directory is staged under a dot prefixed name, like the
+ * results folders of forks, so that the retention policies of other builds leave it alone. It gets
+ * its final name once published.
+ */
+final class ShardedRun {
+
+  static final String SHARD_INDEX_PROPERTY = "gatling.shard.index";
+  static final String SHARD_COUNT_PROPERTY = "gatling.shard.count";
+
+  private static final String SHARDS_FOLDER = "shards";
+  private static final String SIMULATION_LOG_SUFFIX = ".log";
+
+  // directory names taken by concurrent runs, before giving up
+  private static final int MAX_NAME_ATTEMPTS = 1000;
+
+  private final File stagingDirectory;
+  private final File combinedRunDirectory;
+  private final int shardCount;
+
+  private ShardedRun(File stagingDirectory, File combinedRunDirectory, int shardCount) {
+    this.stagingDirectory = stagingDirectory;
+    this.combinedRunDirectory = combinedRunDirectory;
+    this.shardCount = shardCount;
+  }
+
+  /**
+   * Creates the staging directory of the combined run directory, named like the ones Gatling
+   * creates itself.
+   *
+   * @param resultsFolder the results folder of the plugin
+   * @param simulationClass the sharded simulation class
+   * @param shardCount the number of shards
+   * @return the sharded run
+   * @throws IOException if the directories can't be created
+   */
+  static ShardedRun create(File resultsFolder, String simulationClass, int shardCount)
+      throws IOException {
+    String simulationId =
+        simulationClass.substring(simulationClass.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+    long timestamp = System.currentTimeMillis();
+    ShardedRun run = null;
+    for (int i = 0; run == null; i++) {
+      String suffix = new SimpleDateFormat("yyyyMMddHHmmssSSS").format(new Date(timestamp++));
+      File candidate = new File(resultsFolder, simulationId + "-" + suffix);
+      File staging = new File(resultsFolder, "." + candidate.getName());
+      if (!candidate.exists() && staging.mkdir()) {
+        run = new ShardedRun(staging, candidate, shardCount);
+      } else if (!staging.exists() && !candidate.exists() || i == MAX_NAME_ATTEMPTS) {
+        throw new IOException("Could not create run directory " + staging);
+      }
+    }
+
+    for (int i = 0; i < shardCount; i++) {
+      Files.createDirectories(run.shardResultsFolder(i).toPath());
+    }
+    return run;
+  }
+
+  /** @return the final location of the combined run directory, once published */
+  File getCombinedRunDirectory() {
+    return combinedRunDirectory;
+  }
+
+  /** @return the location of the combined run directory while the shards run */
+  File getStagingDirectory() {
+    return stagingDirectory;
+  }
+
+  /**
+   * Moves the staging directory to the final location of the combined run directory, if not done
+   * yet.
+   *
+   * @throws IOException if the directory can't be moved
+   */
+  void publish() throws IOException {
+    if (stagingDirectory.exists()) {
+      Files.move(stagingDirectory.toPath(), combinedRunDirectory.toPath());
+    }
+  }
+
+  int getShardCount() {
+    return shardCount;
+  }
+
+  File shardResultsFolder(int shardIndex) {
+    return new File(new File(stagingDirectory, SHARDS_FOLDER), String.valueOf(shardIndex));
+  }
+
+  List<String> shardJvmArgs(List<String> jvmArgs, int shardIndex) {
+    List<String> shardJvmArgs = new ArrayList<>(jvmArgs);
+    shardJvmArgs.add("-D" + SHARD_INDEX_PROPERTY + "=" + shardIndex);
+    shardJvmArgs.add("-D" + SHARD_COUNT_PROPERTY + "=" + shardCount);
+    return shardJvmArgs;
+  }
+
+  /**
+   * Moves the simulation logs of every shard into the staging directory.
+   *
+   * @return the moved simulation logs
+   * @throws IOException if a simulation log can't be moved
+   */
+  List<Path> collectSimulationLogs() throws IOException {
+    List<Path> collected = new ArrayList<>();
+    for (int i = 0; i < shardCount; i++) {
+      for (Path log : shardSimulationLogs(i)) {
+        Path target =
+            stagingDirectory
+                .toPath()
+                .resolve("simulation-shard-" + i + "-" + log.getFileName().toString());
+        // moved rather than copied, shard logs may take GBs
+        Files.move(log, target, REPLACE_EXISTING);
+        collected.add(target);
+      }
+    }
+    return collected;
+  }
+
+  private List<Path> shardSimulationLogs(int shardIndex) throws IOException {
+    File[] runDirectories = shardResultsFolder(shardIndex).listFiles(File::isDirectory);
+    List<Path> logs = new ArrayList<>();
+    if (runDirectories != null) {
+      for (File runDirectory : runDirectories) {
+        try (Stream<Path> files = Files.list(runDirectory.toPath())) {
+          logs.addAll(
+              files
+                  .filter(file -> file.getFileName().toString().endsWith(SIMULATION_LOG_SUFFIX))
+                  .collect(Collectors.toList()));
+        }
+      }
+    }
+    return logs;
+  }
+}
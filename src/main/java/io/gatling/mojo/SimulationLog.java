@@ -0,0 +1,265 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Access to the tab separated {@literal simulation.log} files written by Gatling.
+ *
+ * <p>Records are read line by line so that multi-GB logs never have to fit in memory. Only the text
+ * format is supported, the binary format of Gatling 3.10 and later is rejected with an explicit
+ * error.
+ *
+ * <p>Logs may be gzip compressed after the run, as {@literal simulation.log.gz}: they're read
+ * transparently, and decompressed temporarily for the Gatling processes generating reports, which
+ * only read plain logs.
+ */
+final class SimulationLog {
+
+  static final String FILE_NAME = "simulation.log";
+  static final String FILE_SUFFIX = ".log";
+  static final String COMPRESSED_SUFFIX = ".log.gz";
+
+  static final String RUN = "RUN";
+  static final String ASSERTION = "ASSERTION";
+  static final String USER = "USER";
+  static final String REQUEST = "REQUEST";
+  static final String GROUP = "GROUP";
+  static final String ERROR = "ERROR";
+
+  static final int BUFFER_SIZE = 1 << 16;
+
+  private static final byte[] TEXT_HEADER = (RUN + '\t').getBytes(UTF_8);
+
+  private SimulationLog() {}
+
+  /**
+   * Lists the simulation logs of a run directory, plain or compressed. A compressed log whose plain
+   * version is also there, e.g. while it's being compressed or temporarily decompressed, is
+   * skipped.
+   *
+   * @param runDirectory the run directory
+   * @return the simulation logs, sorted by name
+   * @throws IOException if the directory can't be listed
+   */
+  static List<Path> simulationLogs(File runDirectory) throws IOException {
+    if (!runDirectory.isDirectory()) {
+      return new ArrayList<>();
+    }
+    try (Stream<Path> files = Files.list(runDirectory.toPath())) {
+      return files
+          .filter(
+              file ->
+                  file.getFileName().toString().endsWith(FILE_SUFFIX)
+                      || isCompressed(file) && !Files.exists(plain(file)))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  static boolean isCompressed(Path log) {
+    return log.getFileName().toString().endsWith(COMPRESSED_SUFFIX);
+  }
+
+  // simulation.log.gz -> simulation.log
+  private static Path plain(Path compressed) {
+    String name = compressed.getFileName().toString();
+    return compressed.resolveSibling(name.substring(0, name.length() - ".gz".length()));
+  }
+
+  static BufferedReader newReader(Path log) throws IOException {
+    checkTextFormat(log);
+    if (isCompressed(log)) {
+      return new BufferedReader(new InputStreamReader(newInputStream(log), UTF_8), BUFFER_SIZE);
+    }
+    return new BufferedReader(
+        Channels.newReader(FileChannel.open(log, StandardOpenOption.READ), UTF_8.newDecoder(), -1),
+        BUFFER_SIZE);
+  }
+
+  static BufferedWriter newWriter(Path log) throws IOException {
+    return new BufferedWriter(
+        Channels.newWriter(
+            FileChannel.open(
+                log,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE),
+            UTF_8.newEncoder(),
+            -1),
+        BUFFER_SIZE);
+  }
+
+  /** @return the decompressed content of the log if it's compressed, its raw content otherwise */
+  private static InputStream newInputStream(Path log) throws IOException {
+    InputStream is = Files.newInputStream(log);
+    return isCompressed(log) ? new GZIPInputStream(is, BUFFER_SIZE) : is;
+  }
+
+  /**
+   * Compresses the plain simulation logs of a run directory in a single streaming pass each, at
+   * the fastest gzip level, and deletes them once compressed.
+   *
+   * @param runDirectory the run directory
+   * @return the compressed logs
+   * @throws IOException if a log can't be compressed
+   */
+  static List<Path> compress(File runDirectory) throws IOException {
+    List<Path> compressed = new ArrayList<>();
+    for (Path log : simulationLogs(runDirectory)) {
+      if (isCompressed(log)) {
+        continue;
+      }
+      Path target = log.resolveSibling(log.getFileName() + ".gz");
+      // written aside first, so that an interrupted compression never loses the plain log
+      Path partial = log.resolveSibling(target.getFileName() + ".tmp");
+      try (OutputStream os =
+          new GZIPOutputStream(Files.newOutputStream(partial), BUFFER_SIZE) {
+            {
+              def.setLevel(Deflater.BEST_SPEED);
+            }
+          }) {
+        Files.copy(log, os);
+      }
+      Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+      Files.delete(log);
+      compressed.add(target);
+    }
+    return compressed;
+  }
+
+  /**
+   * Decompresses the compressed simulation logs of a run directory next to them, for the Gatling
+   * processes that only read plain logs.
+   *
+   * @param runDirectory the run directory
+   * @return the decompressed logs, to delete once read
+   * @throws IOException if a log can't be decompressed
+   */
+  static List<Path> decompress(File runDirectory) throws IOException {
+    List<Path> decompressed = new ArrayList<>();
+    for (Path log : simulationLogs(runDirectory)) {
+      if (!isCompressed(log)) {
+        continue;
+      }
+      Path target = plain(log);
+      try (InputStream is = newInputStream(log)) {
+        Files.copy(is, target);
+      } catch (IOException e) {
+        Files.deleteIfExists(target);
+        throw e;
+      }
+      decompressed.add(target);
+    }
+    return decompressed;
+  }
+
+  private static void checkTextFormat(Path log) throws IOException {
+    byte[] header = new byte[TEXT_HEADER.length];
+    int read;
+    try (InputStream is = newInputStream(log)) {
+      read = is.readNBytes(header, 0, header.length);
+    }
+    if (read > 0 && !Arrays.equals(header, TEXT_HEADER)) {
+      throw new IOException(
+          log
+              + " is not a text simulation.log, binary logs written by Gatling 3.10+ aren't supported");
+    }
+  }
+
+  /** @return the record type of the line, i.e. its first column */
+  static String recordType(String line) {
+    int tab = line.indexOf('\t');
+    return tab < 0 ? line : line.substring(0, tab);
+  }
+
+  /**
+   * Extracts the timestamp a record was written at: the end of requests and groups, the event time
+   * of users and errors.
+   *
+   * @param line the record
+   * @return the timestamp in epoch millis, or -1 if the record doesn't have one
+   */
+  static long timestamp(String line) {
+    switch (recordType(line)) {
+      case REQUEST:
+        return parseLong(column(line, 4));
+      case GROUP:
+        return parseLong(column(line, 3));
+      case ERROR:
+        return parseLong(column(line, 2));
+      case USER:
+        return parseLong(line.substring(line.lastIndexOf('\t') + 1));
+      case RUN:
+        return parseLong(column(line, 3));
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * Returns the given column of a record without splitting the whole line.
+   *
+   * @param line the record
+   * @param index the zero based column index
+   * @return the column, or null if the record is shorter
+   */
+  static String column(String line, int index) {
+    int start = 0;
+    for (int i = 0; i < index; i++) {
+      start = line.indexOf('\t', start) + 1;
+      if (start == 0) {
+        return null;
+      }
+    }
+    int end = line.indexOf('\t', start);
+    return end < 0 ? line.substring(start) : line.substring(start, end);
+  }
+
+  static long parseLong(String value) {
+    if (value == null) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Streaming, timestamp ordered k-way merge of several simulation logs into one.
+ *
+ * <p>Only the current record of every input is held in memory, so the merge runs in memory bounded
+ * by the number of inputs, whatever the size of the logs. The {@literal RUN} header and the
+ * assertions of the earliest started input are kept, those of the other inputs are dropped.
+ */
+final class SimulationLogMerger {
+
+  private SimulationLogMerger() {}
+
+  /**
+   * Merges the given simulation logs.
+   *
+   * @param inputs the simulation logs to merge
+   * @param output the merged simulation log
+   * @return the number of records written
+   * @throws IOException if a log can't be read or written
+   */
+  static long merge(List<Path> inputs, Path output) throws IOException {
+    List<Cursor> cursors = new ArrayList<>(inputs.size());
+    try {
+      for (Path input : inputs) {
+        cursors.add(new Cursor(SimulationLog.newReader(input)));
+      }
+      try (BufferedWriter writer = SimulationLog.newWriter(output)) {
+        return merge(cursors, writer);
+      }
+    } finally {
+      for (Cursor cursor : cursors) {
+        cursor.reader.close();
+      }
+    }
+  }
+
+  private static long merge(List<Cursor> cursors, BufferedWriter writer) throws IOException {
+    long written = 0;
+
+    // headers come first in every log, only keep those of the earliest run
+    Cursor first = null;
+    for (Cursor cursor : cursors) {
+      cursor.readHeader();
+      if (cursor.runStart >= 0 && (first == null || cursor.runStart < first.runStart)) {
+        first = cursor;
+      }
+    }
+    if (first != null) {
+      for (String header : first.header) {
+        writer.write(header);
+        writer.newLine();
+        written++;
+      }
+    }
+
+    PriorityQueue<Cursor> queue =
+        new PriorityQueue<>(
+            Math.max(1, cursors.size()), Comparator.comparingLong(cursor -> cursor.timestamp));
+    for (Cursor cursor : cursors) {
+      cursor.header = null;
+      if (cursor.line != null) {
+        queue.add(cursor);
+      }
+    }
+
+    while (!queue.isEmpty()) {
+      Cursor cursor = queue.poll();
+      writer.write(cursor.line);
+      writer.newLine();
+      written++;
+      if (cursor.advance()) {
+        queue.add(cursor);
+      }
+    }
+    return written;
+  }
+
+  private static final class Cursor {
+    private final BufferedReader reader;
+    private List<String> header = new ArrayList<>();
+    private long runStart = -1;
+    private String line;
+    private long timestamp;
+
+    private Cursor(BufferedReader reader) {
+      this.reader = reader;
+    }
+
+    private void readHeader() throws IOException {
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        String type = SimulationLog.recordType(line);
+        if (SimulationLog.RUN.equals(type)) {
+          runStart = SimulationLog.timestamp(line);
+        } else if (!SimulationLog.ASSERTION.equals(type)) {
+          break;
+        }
+        header.add(line);
+      }
+      if (line != null) {
+        timestamp = Math.max(SimulationLog.timestamp(line), 0);
+      }
+    }
+
+    private boolean advance() throws IOException {
+      do {
+        line = reader.readLine();
+      } while (line != null && line.isEmpty());
+      if (line == null) {
+        return false;
+      }
+      long lineTimestamp = SimulationLog.timestamp(line);
+      // records without a timestamp stay next to their predecessor
+      if (lineTimestamp >= 0) {
+        timestamp = lineTimestamp;
+      }
+      return true;
+    }
+  }
+}
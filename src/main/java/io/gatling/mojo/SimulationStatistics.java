@@ -0,0 +1,255 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per request statistics of a run, computed in a single streaming pass over its simulation logs.
+ *
+ * <p>Memory only grows with the number of distinct request names, every request keeping a bounded
+ * {@link LatencyHistogram}, never with the size of the logs.
+ */
+final class SimulationStatistics {
+
+  static final String ALL_REQUESTS = "All Requests";
+
+  private static final String GROUP_SEPARATOR = " / ";
+
+  private final Map<String, RequestStatistics> requests = new TreeMap<>();
+  private final Map<String, RequestStatistics> requestsByRawName = new HashMap<>();
+  private final RequestStatistics allRequests = new RequestStatistics(ALL_REQUESTS);
+  private String simulationClass;
+  private String simulationId;
+  private long runStart = -1;
+  private long firstRequestStart = Long.MAX_VALUE;
+  private long lastRequestEnd = Long.MIN_VALUE;
+
+  /**
+   * Reads the simulation logs of a run directory.
+   *
+   * @param runDirectory the run directory
+   * @return the statistics of the run
+   * @throws IOException if a simulation log can't be read
+   */
+  static SimulationStatistics fromRunDirectory(File runDirectory) throws IOException {
+    return fromSimulationLogs(SimulationLog.simulationLogs(runDirectory));
+  }
+
+  static SimulationStatistics fromSimulationLogs(List<Path> logs) throws IOException {
+    SimulationStatistics statistics = new SimulationStatistics();
+    for (Path log : logs) {
+      try (BufferedReader reader = SimulationLog.newReader(log)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          statistics.record(line);
+        }
+      }
+    }
+    return statistics;
+  }
+
+  void record(String line) {
+    switch (SimulationLog.recordType(line)) {
+      case SimulationLog.REQUEST:
+        recordRequest(line);
+        break;
+      case SimulationLog.RUN:
+        if (simulationClass == null) {
+          simulationClass = SimulationLog.column(line, 1);
+          simulationId = SimulationLog.column(line, 2);
+          runStart = SimulationLog.timestamp(line);
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  // single scan of the line: REQUEST, groups, name, start, end, status, message
+  private void recordRequest(String line) {
+    int groupsStart = line.indexOf('\t') + 1;
+    int nameStart = line.indexOf('\t', groupsStart) + 1;
+    int startStart = nameStart == 0 ? 0 : line.indexOf('\t', nameStart) + 1;
+    int endStart = startStart == 0 ? 0 : line.indexOf('\t', startStart) + 1;
+    int statusStart = endStart == 0 ? 0 : line.indexOf('\t', endStart) + 1;
+    if (statusStart == 0) {
+      return;
+    }
+    long start = parseLong(line, startStart, endStart - 1);
+    long end = parseLong(line, endStart, statusStart - 1);
+    if (start < 0 || end < 0) {
+      return;
+    }
+    boolean ok = line.startsWith("OK", statusStart);
+
+    // groups and name, as written, to avoid building the key of every record
+    String rawName = line.substring(groupsStart, startStart - 1);
+    RequestStatistics request = requestsByRawName.get(rawName);
+    if (request == null) {
+      String groups = line.substring(groupsStart, nameStart - 1);
+      String name = line.substring(nameStart, startStart - 1);
+      String key =
+          groups.isEmpty() ? name : groups.replace(",", GROUP_SEPARATOR) + GROUP_SEPARATOR + name;
+      request = requests.computeIfAbsent(key, RequestStatistics::new);
+      requestsByRawName.put(rawName, request);
+    }
+    request.record(end - start, ok);
+    allRequests.record(end - start, ok);
+    firstRequestStart = Math.min(firstRequestStart, start);
+    lastRequestEnd = Math.max(lastRequestEnd, end);
+  }
+
+  private static long parseLong(String line, int from, int to) {
+    try {
+      return Long.parseLong(line, from, to, 10);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  String getSimulationClass() {
+    return simulationClass;
+  }
+
+  String getSimulationId() {
+    return simulationId;
+  }
+
+  long getRunStart() {
+    return runStart;
+  }
+
+  /** @return the duration between the first request start and the last request end, in ms */
+  long getDurationMillis() {
+    return lastRequestEnd < firstRequestStart ? 0 : lastRequestEnd - firstRequestStart;
+  }
+
+  Collection<RequestStatistics> getRequests() {
+    return Collections.unmodifiableCollection(requests.values());
+  }
+
+  RequestStatistics getRequest(String name) {
+    return ALL_REQUESTS.equals(name) ? allRequests : requests.get(name);
+  }
+
+  RequestStatistics getAllRequests() {
+    return allRequests;
+  }
+
+  /** @return the throughput of the given request over the whole run, in requests per second */
+  double getThroughput(RequestStatistics request) {
+    long duration = getDurationMillis();
+    return duration == 0 ? 0 : request.getCount() * 1000.0 / duration;
+  }
+
+  /**
+   * @return a plain text table of the statistics, one line per request after the global statistics
+   */
+  List<String> summaryLines() {
+    List<String> lines = new ArrayList<>();
+    lines.add(
+        String.format(
+            Locale.ROOT,
+            "%-40s %10s %7s %7s %7s %7s %7s %9s",
+            "Request",
+            "Count",
+            "KO %",
+            "p50",
+            "p95",
+            "p99",
+            "Max",
+            "Req/s"));
+    List<RequestStatistics> all = new ArrayList<>();
+    all.add(allRequests);
+    all.addAll(requests.values());
+    for (RequestStatistics request : all) {
+      lines.add(
+          String.format(
+              Locale.ROOT,
+              "%-40s %10d %7.2f %7d %7d %7d %7d %9.2f",
+              request.getName(),
+              request.getCount(),
+              request.getErrorRatio() * 100,
+              request.getPercentile(50),
+              request.getPercentile(95),
+              request.getPercentile(99),
+              request.getMax(),
+              getThroughput(request)));
+    }
+    return lines;
+  }
+
+  static final class RequestStatistics {
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private long koCount;
+
+    RequestStatistics(String name) {
+      this.name = name;
+    }
+
+    void record(long responseTime, boolean ok) {
+      histogram.record(responseTime);
+      if (!ok) {
+        koCount++;
+      }
+    }
+
+    String getName() {
+      return name;
+    }
+
+    long getCount() {
+      return histogram.getCount();
+    }
+
+    long getKoCount() {
+      return koCount;
+    }
+
+    double getErrorRatio() {
+      return getCount() == 0 ? 0 : (double) koCount / getCount();
+    }
+
+    long getMin() {
+      return histogram.getMin();
+    }
+
+    long getMax() {
+      return histogram.getMax();
+    }
+
+    double getMean() {
+      return histogram.getMean();
+    }
+
+    long getPercentile(double percentile) {
+      return histogram.getPercentile(percentile);
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Service level agreement of the requests whose name matches a pattern, configured in the POM:
+ *
+ * <pre>{@code
+ * <slas>
+ *   <sla>
+ *     <pattern>search / .*</pattern>
+ *     <p95>500</p95>
+ *     <errorRate>1</errorRate>
+ *   </sla>
+ * </slas>
+ * }</pre>
+ *
+ * <p>Names of requests in groups are prefixed with their groups, separated with {@literal " / "},
+ * and {@value SimulationStatistics#ALL_REQUESTS} matches the global statistics of a run. Limits
+ * that aren't set aren't checked.
+ */
+public class Sla {
+
+  /** Regular expression matched against the whole request name. By default, every request. */
+  private String pattern = ".*";
+
+  /** Maximum 95th percentile of the response time, in milliseconds. */
+  private Long p95;
+
+  /** Maximum 99th percentile of the response time, in milliseconds. */
+  private Long p99;
+
+  /** Maximum response time, in milliseconds. */
+  private Long max;
+
+  /** Maximum percentage of failed requests. */
+  private Double errorRate;
+
+  private Pattern compiledPattern;
+
+  public String getPattern() {
+    return pattern;
+  }
+
+  public void setPattern(String pattern) {
+    this.pattern = pattern;
+    this.compiledPattern = null;
+  }
+
+  public Long getP95() {
+    return p95;
+  }
+
+  public void setP95(Long p95) {
+    this.p95 = p95;
+  }
+
+  public Long getP99() {
+    return p99;
+  }
+
+  public void setP99(Long p99) {
+    this.p99 = p99;
+  }
+
+  public Long getMax() {
+    return max;
+  }
+
+  public void setMax(Long max) {
+    this.max = max;
+  }
+
+  public Double getErrorRate() {
+    return errorRate;
+  }
+
+  public void setErrorRate(Double errorRate) {
+    this.errorRate = errorRate;
+  }
+
+  boolean matches(String requestName) {
+    if (compiledPattern == null) {
+      compiledPattern = Pattern.compile(pattern);
+    }
+    return compiledPattern.matcher(requestName).matches();
+  }
+
+  /**
+   * Checks the statistics of a run against SLAs. Every SLA whose pattern matches a request applies
+   * to it.
+   *
+   * <p>The statistics are computed in a single pass over the simulation logs, so patterns are only
+   * matched once per distinct request name, never per record.
+   *
+   * @param slas the SLAs
+   * @param statistics the statistics of the run
+   * @return a description of every violation, empty if there is none
+   */
+  static List<String> violations(List<Sla> slas, SimulationStatistics statistics) {
+    List<String> violations = new ArrayList<>();
+    if (slas == null || slas.isEmpty()) {
+      return violations;
+    }
+    List<SimulationStatistics.RequestStatistics> requests = new ArrayList<>();
+    requests.add(statistics.getAllRequests());
+    requests.addAll(statistics.getRequests());
+
+    for (SimulationStatistics.RequestStatistics request : requests) {
+      if (request.getCount() == 0) {
+        continue;
+      }
+      String prefix = statistics.getSimulationId() + " / " + request.getName() + ": ";
+      for (Sla sla : slas) {
+        if (!sla.matches(request.getName())) {
+          continue;
+        }
+        check(violations, prefix, "p95", request.getPercentile(95), sla.p95);
+        check(violations, prefix, "p99", request.getPercentile(99), sla.p99);
+        check(violations, prefix, "max", request.getMax(), sla.max);
+        double errorRate = request.getErrorRatio() * 100;
+        if (sla.errorRate != null && errorRate > sla.errorRate) {
+          violations.add(
+              prefix
+                  + String.format(
+                      Locale.ROOT,
+                      "error rate %.2f%% exceeds SLA %.2f%%",
+                      errorRate,
+                      sla.errorRate));
+        }
+      }
+    }
+    return violations;
+  }
+
+  private static void check(
+      List<String> violations, String prefix, String metric, long actual, Long limit) {
+    if (limit != null && actual > limit) {
+      violations.add(prefix + metric + " " + actual + "ms exceeds SLA " + limit + "ms");
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.DirectoryScanner;
+
+/**
+ * Mojo to split the large CSV feeders of the resources folder into one slice per shard, so that
+ * the injector processes of sharded runs only load their own slice instead of every one of them
+ * parsing the whole feeder at startup.
+ *
+ * <p>The test goal puts the slice directory of every shard first on its classpath, so that
+ * simulations keep loading feeders by their usual path and get the slice instead, and passes it as
+ * the gatling.feederSlice system property. Slices are only split again when their feeder changes.
+ */
+@Mojo(name = "split-feeders", defaultPhase = LifecyclePhase.PROCESS_TEST_RESOURCES)
+public final class SplitFeedersMojo extends AbstractMojo {
+
+  /** Folder where feeders are stored, as configured for the test goal. */
+  @Parameter(
+      property = "gatling.resourcesFolder",
+      defaultValue = "${project.basedir}/src/test/resources")
+  private File resourcesFolder;
+
+  /** Patterns of the feeders to split, relative to the resources folder. By default, all CSVs. */
+  @Parameter(property = "gatling.feeders.includes")
+  private List<String> feederIncludes;
+
+  /** Only split feeders larger than this many megabytes, smaller ones load quickly enough. */
+  @Parameter(property = "gatling.feeders.minSizeMb", defaultValue = "64")
+  private long minFeederSizeMb;
+
+  /** Number of slices, the number of shards of the test goal. */
+  @Parameter(property = "gatling.shards", defaultValue = "1")
+  private int shards;
+
+  /** Directory where feeder slices are written, as configured for the test goal. */
+  @Parameter(
+      property = "gatling.feeders.directory",
+      defaultValue = "${project.build.directory}/gatling-feeders")
+  private File feedersDirectory;
+
+  /** Disable the plugin. */
+  @Parameter(property = "gatling.skip", defaultValue = "false")
+  private boolean skip;
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    if (skip) {
+      getLog().info("Skipping gatling-maven-plugin");
+      return;
+    } else if (shards < 2) {
+      getLog().info("Runs aren't sharded, feeders don't need splitting");
+      return;
+    } else if (!resourcesFolder.isDirectory()) {
+      getLog().info("No resources folder " + resourcesFolder);
+      return;
+    }
+
+    DirectoryScanner scanner = new DirectoryScanner();
+    scanner.setBasedir(resourcesFolder);
+    scanner.setIncludes(
+        (feederIncludes == null || feederIncludes.isEmpty()
+                ? Collections.singletonList("**/*.csv")
+                : feederIncludes)
+            .toArray(new String[0]));
+    scanner.scan();
+
+    for (String path : scanner.getIncludedFiles()) {
+      File feeder = new File(resourcesFolder, path);
+      if (feeder.length() < minFeederSizeMb * 1024 * 1024) {
+        continue;
+      } else if (isUpToDate(feeder, path)) {
+        getLog().info("Slices of feeder " + path + " are up to date");
+        continue;
+      }
+
+      long start = System.nanoTime();
+      try {
+        FeederSplitter.split(
+            feeder.toPath(),
+            shards,
+            slice ->
+                new File(FeederSplitter.sliceDirectory(feedersDirectory, shards, slice), path));
+      } catch (IOException e) {
+        throw new MojoExecutionException("Could not split feeder " + feeder, e);
+      }
+      getLog()
+          .info(
+              "Split feeder "
+                  + path
+                  + " into "
+                  + shards
+                  + " slices in "
+                  + (System.nanoTime() - start) / 1_000_000
+                  + "ms");
+    }
+  }
+
+  private boolean isUpToDate(File feeder, String path) {
+    for (int i = 0; i < shards; i++) {
+      File slice = new File(FeederSplitter.sliceDirectory(feedersDirectory, shards, i), path);
+      if (!slice.isFile() || slice.lastModified() < feeder.lastModified()) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compact JSON and Markdown summaries of a run, with the count, throughput, errors and response
+ * time percentiles of every request, for CI gates that don't need the HTML reports.
+ *
+ * <p>Summaries are written from {@link SimulationStatistics}, computed in a single streaming pass
+ * with bounded histograms, so they take seconds where generating the HTML reports of a large run
+ * takes minutes.
+ */
+final class SummaryReport {
+
+  static final String JSON_FILE = "summary.json";
+  static final String MARKDOWN_FILE = "summary.md";
+
+  private SummaryReport() {}
+
+  /**
+   * Writes the summaries of a run into its directory.
+   *
+   * @param statistics the statistics of the run
+   * @param runDirectory the run directory
+   * @throws IOException if a summary can't be written
+   */
+  static void write(SimulationStatistics statistics, File runDirectory) throws IOException {
+    try (BufferedWriter writer =
+        Files.newBufferedWriter(new File(runDirectory, JSON_FILE).toPath(), UTF_8)) {
+      writeJson(statistics, writer);
+    }
+    try (BufferedWriter writer =
+        Files.newBufferedWriter(new File(runDirectory, MARKDOWN_FILE).toPath(), UTF_8)) {
+      writeMarkdown(statistics, writer);
+    }
+  }
+
+  private static List<SimulationStatistics.RequestStatistics> requests(
+      SimulationStatistics statistics) {
+    List<SimulationStatistics.RequestStatistics> requests = new ArrayList<>();
+    requests.add(statistics.getAllRequests());
+    requests.addAll(statistics.getRequests());
+    return requests;
+  }
+
+  static void writeJson(SimulationStatistics statistics, Writer writer) throws IOException {
+    writer.write("{\n");
+    writer.write("  \"simulation\": " + quote(statistics.getSimulationClass()) + ",\n");
+    writer.write("  \"simulationId\": " + quote(statistics.getSimulationId()) + ",\n");
+    writer.write("  \"runStart\": " + statistics.getRunStart() + ",\n");
+    writer.write("  \"durationMillis\": " + statistics.getDurationMillis() + ",\n");
+    writer.write("  \"requests\": [");
+    String separator = "\n";
+    for (SimulationStatistics.RequestStatistics request : requests(statistics)) {
+      writer.write(separator);
+      writer.write(
+          String.format(
+              Locale.ROOT,
+              "    {\"name\": %s, \"count\": %d, \"errors\": %d, \"errorRate\": %.2f,"
+                  + " \"rps\": %.2f, \"p50\": %d, \"p95\": %d, \"p99\": %d, \"max\": %d}",
+              quote(request.getName()),
+              request.getCount(),
+              request.getKoCount(),
+              request.getErrorRatio() * 100,
+              statistics.getThroughput(request),
+              request.getPercentile(50),
+              request.getPercentile(95),
+              request.getPercentile(99),
+              request.getMax()));
+      separator = ",\n";
+    }
+    writer.write("\n  ]\n}\n");
+  }
+
+  static void writeMarkdown(SimulationStatistics statistics, Writer writer) throws IOException {
+    writer.write("# " + statistics.getSimulationClass() + "\n\n");
+    writer.write(
+        String.format(
+            Locale.ROOT,
+            "Run %s, %.1fs of requests.\n\n",
+            statistics.getSimulationId(),
+            statistics.getDurationMillis() / 1000.0));
+    writer.write("| Request | Count | Errors | Error % | Req/s | p50 | p95 | p99 | Max |\n");
+    writer.write("|---|---:|---:|---:|---:|---:|---:|---:|---:|\n");
+    for (SimulationStatistics.RequestStatistics request : requests(statistics)) {
+      writer.write(
+          String.format(
+              Locale.ROOT,
+              "| %s | %d | %d | %.2f | %.2f | %d | %d | %d | %d |\n",
+              request.getName().replace("|", "\\|"),
+              request.getCount(),
+              request.getKoCount(),
+              request.getErrorRatio() * 100,
+              statistics.getThroughput(request),
+              request.getPercentile(50),
+              request.getPercentile(95),
+              request.getPercentile(99),
+              request.getMax()));
+    }
+  }
+
+  private static String quote(String value) {
+    if (value == null) {
+      return "null";
+    }
+    StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+    for (char c : value.toCharArray()) {
+      switch (c) {
+        case '"':
+          quoted.append("\\\"");
+          break;
+        case '\\':
+          quoted.append("\\\\");
+          break;
+        default:
+          if (c < 0x20) {
+            quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+          } else {
+            quoted.append(c);
+          }
+      }
+    }
+    return quoted.append('"').toString();
+  }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Trends of the last runs of a simulation: drift detection and a self-contained HTML page with one
+ * SVG chart per request.
+ */
+final class TrendReport {
+
+  private static final int CHART_WIDTH = 640;
+  private static final int CHART_HEIGHT = 160;
+  private static final int MARGIN = 30;
+
+  private final String simulationId;
+  private final List<TrendStore.Run> runs;
+
+  TrendReport(String simulationId, List<TrendStore.Run> runs) {
+    this.simulationId = simulationId;
+    this.runs = runs;
+  }
+
+  /**
+   * Compares the latest run with the median of the previous ones.
+   *
+   * <p>A request drifts when its p95 is more than {@code tolerancePercent} above the median p95,
+   * its throughput more than {@code tolerancePercent} below the median throughput, or its error
+   * ratio more than {@code tolerancePercent} points above the median error ratio.
+   *
+   * @param tolerancePercent the tolerance, in percent
+   * @param minRuns the minimum number of previous runs for a comparison to be meaningful
+   * @return a description of every drift, empty if there is none
+   */
+  List<String> drift(double tolerancePercent, int minRuns) {
+    List<String> drifts = new ArrayList<>();
+    if (runs.size() < minRuns + 1) {
+      return drifts;
+    }
+    double factor = tolerancePercent / 100;
+    TrendStore.Run latest = runs.get(runs.size() - 1);
+    List<TrendStore.Run> previous = runs.subList(0, runs.size() - 1);
+
+    latest
+        .getRequests()
+        .forEach(
+            (request, summary) -> {
+              String prefix = simulationId + " / " + request + ": ";
+              double p95 = median(previous, request, TrendStore.Summary::getP95);
+              if (!Double.isNaN(p95) && summary.getP95() > p95 * (1 + factor)) {
+                drifts.add(
+                    prefix
+                        + String.format(
+                            Locale.ROOT,
+                            "p95 %dms drifted above median %.0fms",
+                            summary.getP95(),
+                            p95));
+              }
+              double rps = median(previous, request, TrendStore.Summary::getThroughput);
+              if (!Double.isNaN(rps) && summary.getThroughput() < rps * (1 - factor)) {
+                drifts.add(
+                    prefix
+                        + String.format(
+                            Locale.ROOT,
+                            "throughput %.2f rps drifted below median %.2f rps",
+                            summary.getThroughput(),
+                            rps));
+              }
+              double errors = median(previous, request, TrendStore.Summary::getErrorRatio);
+              if (!Double.isNaN(errors) && summary.getErrorRatio() > errors + factor) {
+                drifts.add(
+                    prefix
+                        + String.format(
+                            Locale.ROOT,
+                            "error ratio %.2f%% drifted above median %.2f%%",
+                            summary.getErrorRatio() * 100,
+                            errors * 100));
+              }
+            });
+    return drifts;
+  }
+
+  private static double median(
+      List<TrendStore.Run> runs, String request, ToDoubleFunction<TrendStore.Summary> metric) {
+    double[] values =
+        runs.stream()
+            .map(run -> run.getRequests().get(request))
+            .filter(summary -> summary != null)
+            .mapToDouble(metric)
+            .toArray();
+    if (values.length == 0) {
+      return Double.NaN;
+    }
+    Arrays.sort(values);
+    int middle = values.length / 2;
+    return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+  }
+
+  /**
+   * Writes the HTML page.
+   *
+   * @param file the file to write
+   * @throws IOException if the file can't be written
+   */
+  void write(File file) throws IOException {
+    Set<String> requests = new LinkedHashSet<>();
+    runs.forEach(run -> requests.addAll(run.getRequests().keySet()));
+
+    Files.createDirectories(file.getParentFile().toPath());
+    try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), UTF_8)) {
+      writer.write("<!DOCTYPE html>\n<html><head><meta charset=\"UTF-8\"><title>");
+      writer.write(escape(simulationId));
+      writer.write(" trends</title>\n<style>body{font-family:sans-serif}");
+      writer.write("svg{border:1px solid #ddd;margin-bottom:8px}");
+      writer.write(".p50{stroke:#4caf50}.p95{stroke:#ff9800}.p99{stroke:#f44336}");
+      writer.write("polyline{fill:none;stroke-width:2}</style></head><body>\n<h1>");
+      writer.write(escape(simulationId));
+      writer.write("</h1>\n<p>Last " + runs.size() + " runs, from ");
+      writer.write(escape(runs.get(0).getName()));
+      writer.write(" to ");
+      writer.write(escape(runs.get(runs.size() - 1).getName()));
+      writer.write(". Response time percentiles in ms: ");
+      writer.write("<span style=\"color:#4caf50\">p50</span> ");
+      writer.write("<span style=\"color:#ff9800\">p95</span> ");
+      writer.write("<span style=\"color:#f44336\">p99</span>.</p>\n");
+      for (String request : requests) {
+        writer.write("<h2>" + escape(request) + "</h2>\n");
+        writeChart(writer, request);
+      }
+      writer.write("<h2>Runs</h2>\n<table><tr><th>#</th><th>Run</th><th>Revision</th></tr>\n");
+      for (int i = 0; i < runs.size(); i++) {
+        TrendStore.Run run = runs.get(i);
+        writer.write(
+            "<tr><td>"
+                + (i + 1)
+                + "</td><td>"
+                + escape(run.getName())
+                + "</td><td>"
+                + escape(run.getRevision())
+                + "</td></tr>\n");
+      }
+      writer.write("</table>\n</body></html>\n");
+    }
+  }
+
+  private void writeChart(BufferedWriter writer, String request) throws IOException {
+    long max = 1;
+    for (TrendStore.Run run : runs) {
+      TrendStore.Summary summary = run.getRequests().get(request);
+      if (summary != null) {
+        max = Math.max(max, summary.getP99());
+      }
+    }
+    writer.write(
+        String.format(
+            Locale.ROOT,
+            "<svg width=\"%d\" height=\"%d\" viewBox=\"0 0 %d %d\">",
+            CHART_WIDTH,
+            CHART_HEIGHT,
+            CHART_WIDTH,
+            CHART_HEIGHT));
+    writer.write(
+        String.format(
+            Locale.ROOT, "<text x=\"2\" y=\"%d\" font-size=\"10\">%d</text>", MARGIN / 2, max));
+    writePolyline(writer, request, "p50", max, TrendStore.Summary::getP50);
+    writePolyline(writer, request, "p95", max, TrendStore.Summary::getP95);
+    writePolyline(writer, request, "p99", max, TrendStore.Summary::getP99);
+    writer.write("</svg>\n");
+  }
+
+  private void writePolyline(
+      BufferedWriter writer,
+      String request,
+      String cssClass,
+      long max,
+      ToDoubleFunction<TrendStore.Summary> metric)
+      throws IOException {
+    double plotWidth = CHART_WIDTH - 2 * MARGIN;
+    double plotHeight = CHART_HEIGHT - 2 * MARGIN;
+    double step = runs.size() > 1 ? plotWidth / (runs.size() - 1) : 0;
+    StringBuilder points = new StringBuilder();
+    for (int i = 0; i < runs.size(); i++) {
+      TrendStore.Summary summary = runs.get(i).getRequests().get(request);
+      if (summary == null) {
+        continue;
+      }
+      double x = MARGIN + i * step;
+      double y = MARGIN + plotHeight - metric.applyAsDouble(summary) / max * plotHeight;
+      points.append(String.format(Locale.ROOT, "%.1f,%.1f ", x, y));
+    }
+    writer.write(
+        "<polyline class=\"" + cssClass + "\" points=\"" + points.toString().trim() + "\"/>");
+  }
+
+  private static String escape(String text) {
+    return text.replace("&", "&amp;")
+        .replace("<", "&lt;")
+        .replace(">", "&gt;")
+        .replace("\"", "&quot;");
+  }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only store of run summaries, one tab separated file per simulation, so that trends can be
+ * computed without keeping or re-reading the simulation logs of old runs.
+ *
+ * <p>Every run appends one line per request: run start, run directory, revision, request, count,
+ * p50, p95, p99, throughput and error ratio.
+ */
+final class TrendStore {
+
+  static final String FILE_SUFFIX = ".tsv";
+  static final String UNKNOWN_REVISION = "unknown";
+
+  private final File directory;
+
+  TrendStore(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Appends the summary of a run.
+   *
+   * @param statistics the statistics of the run
+   * @param runName the name of the run directory
+   * @param revision the revision of the code under test
+   * @throws IOException if the store can't be written
+   */
+  void append(SimulationStatistics statistics, String runName, String revision)
+      throws IOException {
+    Files.createDirectories(directory.toPath());
+    List<String> lines = new ArrayList<>();
+    lines.add(line(statistics, runName, revision, statistics.getAllRequests()));
+    for (SimulationStatistics.RequestStatistics request : statistics.getRequests()) {
+      lines.add(line(statistics, runName, revision, request));
+    }
+    ByteBuffer run =
+        ByteBuffer.wrap(
+            (String.join(System.lineSeparator(), lines) + System.lineSeparator()).getBytes(UTF_8));
+    // locked so that concurrent builds never interleave partial runs: file locks are held by the
+    // JVM, so modules of a parallel build are serialized by the monitor
+    synchronized (TrendStore.class) {
+      try (FileChannel channel =
+              FileChannel.open(
+                  file(statistics.getSimulationId()),
+                  StandardOpenOption.CREATE,
+                  StandardOpenOption.WRITE,
+                  StandardOpenOption.APPEND);
+          FileLock lock = channel.lock()) {
+        while (run.hasRemaining()) {
+          channel.write(run);
+        }
+      }
+    }
+  }
+
+  private static String line(
+      SimulationStatistics statistics,
+      String runName,
+      String revision,
+      SimulationStatistics.RequestStatistics request) {
+    return statistics.getRunStart()
+        + "\t"
+        + runName
+        + '\t'
+        + revision
+        + '\t'
+        + request.getName()
+        + '\t'
+        + request.getCount()
+        + '\t'
+        + request.getPercentile(50)
+        + '\t'
+        + request.getPercentile(95)
+        + '\t'
+        + request.getPercentile(99)
+        + '\t'
+        + String.format(Locale.ROOT, "%.3f", statistics.getThroughput(request))
+        + '\t'
+        + String.format(Locale.ROOT, "%.4f", request.getErrorRatio());
+  }
+
+  /** @return the ids of the simulations with a summary in the store, sorted */
+  List<String> simulations() throws IOException {
+    if (!directory.isDirectory()) {
+      return Collections.emptyList();
+    }
+    try (Stream<Path> files = Files.list(directory.toPath())) {
+      return files
+          .map(file -> file.getFileName().toString())
+          .filter(name -> name.endsWith(FILE_SUFFIX))
+          .map(name -> name.substring(0, name.length() - FILE_SUFFIX.length()))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Reads the last runs of a simulation.
+   *
+   * @param simulationId the simulation id
+   * @param lastRuns the maximum number of runs to return
+   * @return the runs, oldest first
+   * @throws IOException if the store can't be read
+   */
+  List<Run> read(String simulationId, int lastRuns) throws IOException {
+    Path file = file(simulationId);
+    Deque<Run> runs = new ArrayDeque<>();
+    if (!Files.exists(file)) {
+      return new ArrayList<>(runs);
+    }
+    try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] columns = line.split("\t");
+        if (columns.length < 10) {
+          continue;
+        }
+        Run run = runs.peekLast();
+        if (run == null || !run.name.equals(columns[1])) {
+          run = new Run(Long.parseLong(columns[0]), columns[1], columns[2]);
+          runs.addLast(run);
+          if (runs.size() > lastRuns) {
+            runs.removeFirst();
+          }
+        }
+        run.requests.put(
+            columns[3],
+            new Summary(
+                Long.parseLong(columns[4]),
+                Long.parseLong(columns[5]),
+                Long.parseLong(columns[6]),
+                Long.parseLong(columns[7]),
+                Double.parseDouble(columns[8]),
+                Double.parseDouble(columns[9])));
+      }
+    }
+    return new ArrayList<>(runs);
+  }
+
+  private Path file(String simulationId) {
+    return directory.toPath().resolve(simulationId + FILE_SUFFIX);
+  }
+
+  /**
+   * Resolves the commit checked out in the git repository containing the given directory, without
+   * forking git.
+   *
+   * @param directory a directory of the repository, typically the project base directory
+   * @return the commit id, or {@value #UNKNOWN_REVISION} if there is no git repository
+   */
+  static String gitRevision(File directory) {
+    try {
+      for (File dir = directory.getAbsoluteFile(); dir != null; dir = dir.getParentFile()) {
+        Path git = dir.toPath().resolve(".git");
+        if (Files.isRegularFile(git)) {
+          // worktrees and submodules: "gitdir: <path>"
+          String gitDir = readFirstLine(git).substring("gitdir:".length()).trim();
+          git = dir.toPath().resolve(gitDir);
+        }
+        if (Files.isDirectory(git)) {
+          return resolveHead(git);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // fall through
+    }
+    return UNKNOWN_REVISION;
+  }
+
+  private static String resolveHead(Path git) throws IOException {
+    String head = readFirstLine(git.resolve("HEAD"));
+    if (!head.startsWith("ref:")) {
+      return head;
+    }
+    String ref = head.substring("ref:".length()).trim();
+    Path commonDir = git;
+    if (Files.exists(git.resolve("commondir"))) {
+      commonDir = git.resolve(readFirstLine(git.resolve("commondir")));
+    }
+    for (Path refsDir : new Path[] {git, commonDir}) {
+      Path refFile = refsDir.resolve(ref);
+      if (Files.isRegularFile(refFile)) {
+        return readFirstLine(refFile);
+      }
+    }
+    Path packedRefs = commonDir.resolve("packed-refs");
+    if (Files.exists(packedRefs)) {
+      for (String line : Files.readAllLines(packedRefs, UTF_8)) {
+        if (line.endsWith(" " + ref)) {
+          return line.substring(0, line.indexOf(' '));
+        }
+      }
+    }
+    return UNKNOWN_REVISION;
+  }
+
+  private static String readFirstLine(Path file) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+      String line = reader.readLine();
+      return line == null ? "" : line.trim();
+    }
+  }
+
+  static final class Run {
+    private final long start;
+    private final String name;
+    private final String revision;
+    private final Map<String, Summary> requests = new LinkedHashMap<>();
+
+    private Run(long start, String name, String revision) {
+      this.start = start;
+      this.name = name;
+      this.revision = revision;
+    }
+
+    long getStart() {
+      return start;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    String getRevision() {
+      return revision;
+    }
+
+    Map<String, Summary> getRequests() {
+      return Collections.unmodifiableMap(requests);
+    }
+  }
+
+  static final class Summary {
+    private final long count;
+    private final long p50;
+    private final long p95;
+    private final long p99;
+    private final double throughput;
+    private final double errorRatio;
+
+    Summary(long count, long p50, long p95, long p99, double throughput, double errorRatio) {
+      this.count = count;
+      this.p50 = p50;
+      this.p95 = p95;
+      this.p99 = p99;
+      this.throughput = throughput;
+      this.errorRatio = errorRatio;
+    }
+
+    long getCount() {
+      return count;
+    }
+
+    long getP50() {
+      return p50;
+    }
+
+    long getP95() {
+      return p95;
+    }
+
+    long getP99() {
+      return p99;
+    }
+
+    double getThroughput() {
+      return throughput;
+    }
+
+    double getErrorRatio() {
+      return errorRatio;
+    }
+  }
+}
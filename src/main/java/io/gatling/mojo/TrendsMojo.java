@@ -0,0 +1,103 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Mojo to render the trends of the last runs recorded in the trend store and detect drifts, without
+ * reading any simulation log.
+ */
+@Mojo(name = "trends", defaultPhase = LifecyclePhase.VERIFY)
+public final class TrendsMojo extends AbstractMojo {
+
+  /** Directory of the trend store, as configured for the test goal. */
+  @Parameter(property = "gatling.trends.directory", required = true)
+  private File trendsDirectory;
+
+  /** Directory where the trend pages are written, one per simulation. */
+  @Parameter(
+      property = "gatling.trends.outputDirectory",
+      defaultValue = "${project.build.directory}/gatling-trends")
+  private File outputDirectory;
+
+  /** Number of runs to render and to compute drifts on. */
+  @Parameter(property = "gatling.trends.lastRuns", defaultValue = "20")
+  private int lastRuns;
+
+  /** Minimum number of previous runs before drifts are detected. */
+  @Parameter(property = "gatling.trends.minRuns", defaultValue = "3")
+  private int minRuns;
+
+  /** Relative drift, in percent, of the latest run from the median of the previous ones. */
+  @Parameter(property = "gatling.trends.tolerance", defaultValue = "10")
+  private double tolerance;
+
+  /** Fail the build when the latest run drifts. By default drifts are only logged. */
+  @Parameter(property = "gatling.trends.failOnDrift", defaultValue = "false")
+  private boolean failOnDrift;
+
+  /** Disable the plugin. */
+  @Parameter(property = "gatling.skip", defaultValue = "false")
+  private boolean skip;
+
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException {
+    if (skip) {
+      getLog().info("Skipping gatling-maven-plugin");
+      return;
+    }
+
+    List<String> drifts = new ArrayList<>();
+    try {
+      TrendStore store = new TrendStore(trendsDirectory);
+      List<String> simulations = store.simulations();
+      if (simulations.isEmpty()) {
+        getLog().info("No run recorded in trend store " + trendsDirectory);
+        return;
+      }
+      for (String simulation : simulations) {
+        List<TrendStore.Run> runs = store.read(simulation, lastRuns);
+        if (runs.isEmpty()) {
+          continue;
+        }
+        TrendReport report = new TrendReport(simulation, runs);
+        File page = new File(outputDirectory, simulation + ".html");
+        report.write(page);
+        getLog().info("Rendered trends of the last " + runs.size() + " runs to " + page);
+        drifts.addAll(report.drift(tolerance, minRuns));
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException("Could not render trends.", e);
+    }
+
+    if (!drifts.isEmpty()) {
+      drifts.forEach(drift -> getLog().warn(drift));
+      if (failOnDrift) {
+        throw new MojoFailureException(drifts.size() + " performance drifts in the latest runs");
+      }
+    }
+  }
+}
@@ -20,15 +20,47 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
 
 /** Mojo to verify Gatling simulation results. */
 @Mojo(name = "verify", defaultPhase = LifecyclePhase.VERIFY)
 public final class VerifyMojo extends AbstractGatlingExecutionMojo {
 
+  /**
+   * Baseline file to compare the per request percentiles and throughput of the runs with. No
+   * regression gate is applied when not set.
+   */
+  @Parameter(property = "gatling.baseline.file")
+  private File baselineFile;
+
+  /** Relative degradation, in percent, tolerated before a difference counts as a regression. */
+  @Parameter(property = "gatling.baseline.tolerance", defaultValue = "10")
+  private double baselineTolerance;
+
+  /** Requests with fewer samples, in the run or the baseline, are not compared. */
+  @Parameter(property = "gatling.baseline.minSamples", defaultValue = "100")
+  private long baselineMinSamples;
+
+  /** Percentile increases below this many milliseconds never count as a regression. */
+  @Parameter(property = "gatling.baseline.minDeltaMillis", defaultValue = "5")
+  private long baselineMinDeltaMillis;
+
+  /** Replace the baseline of the verified simulations with their statistics if they pass. */
+  @Parameter(property = "gatling.baseline.update", defaultValue = "false")
+  private boolean updateBaseline;
+
+  /**
+   * Per request service level agreements the runs must meet, e.g. to check the SLAs of another
+   * environment than the test goal did.
+   */
+  @Parameter private List<Sla> slas;
+
   @Override
   public void execute() throws MojoExecutionException, MojoFailureException {
     if (skip) {
@@ -50,12 +82,70 @@ public final class VerifyMojo extends AbstractGatlingExecutionMojo {
     Path results = resultsFolder.toPath().resolve(LAST_RUN_FILE);
 
     if (results.toFile().exists()) {
+      List<File> runDirectories = new ArrayList<>();
       for (String line : Files.readAllLines(results)) {
         checkError(line);
         File directory = new File(resultsFolder, line);
         searchForAssertionFailures(directory);
+        runDirectories.add(directory);
+      }
+      boolean checkSlas = slas != null && !slas.isEmpty();
+      if (checkSlas || baselineFile != null) {
+        List<SimulationStatistics> runs = runStatistics(runDirectories);
+        if (checkSlas) {
+          checkSlas(runs);
+        }
+        if (baselineFile != null) {
+          checkBaseline(runs);
+        }
+      }
+    }
+  }
+
+  private static List<SimulationStatistics> runStatistics(List<File> runDirectories)
+      throws IOException {
+    List<SimulationStatistics> runs = new ArrayList<>();
+    for (File runDirectory : runDirectories) {
+      SimulationStatistics statistics = SimulationStatistics.fromRunDirectory(runDirectory);
+      if (statistics.getSimulationId() != null) {
+        runs.add(statistics);
       }
     }
+    return runs;
+  }
+
+  private void checkSlas(List<SimulationStatistics> runs) throws MojoFailureException {
+    List<String> violations = new ArrayList<>();
+    for (SimulationStatistics statistics : runs) {
+      violations.addAll(Sla.violations(slas, statistics));
+    }
+    if (!violations.isEmpty()) {
+      violations.forEach(violation -> getLog().error(violation));
+      throwFailureException(violations.size() + " SLA violations");
+    }
+  }
+
+  private void checkBaseline(List<SimulationStatistics> runs)
+      throws IOException, MojoFailureException {
+    Baseline baseline = Baseline.read(baselineFile);
+    List<String> regressions = new ArrayList<>();
+    for (SimulationStatistics statistics : runs) {
+      regressions.addAll(
+          baseline.compare(
+              statistics, baselineTolerance, baselineMinSamples, baselineMinDeltaMillis));
+    }
+
+    if (!regressions.isEmpty()) {
+      regressions.forEach(regression -> getLog().error(regression));
+      throwFailureException(
+          regressions.size() + " performance regressions against baseline " + baselineFile);
+    }
+
+    if (updateBaseline && !runs.isEmpty()) {
+      runs.forEach(baseline::update);
+      baseline.write(baselineFile);
+      getLog().info("Updated baseline " + baselineFile + " with " + runs.size() + " runs");
+    }
   }
 
   private void checkError(String line) throws MojoFailureException {
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BaselineTest {
+
+  @TempDir Path tempDir;
+
+  private final SimulationStatistics statistics = statistics();
+
+  @Test
+  void noRegressionAgainstItself() throws Exception {
+    File file = tempDir.resolve("baseline.tsv").toFile();
+    Baseline baseline = new Baseline();
+    baseline.update(statistics);
+    baseline.write(file);
+
+    assertTrue(Baseline.read(file).compare(statistics, 10, 1, 5).isEmpty());
+  }
+
+  @Test
+  void detectsPercentileRegressions() throws Exception {
+    Path file = tempDir.resolve("baseline.tsv");
+    Files.write(
+        file,
+        Arrays.asList(
+            "# simulation\trequest\tcount\tp50\tp95\tp99\trps",
+            "basicsimulation\thome\t2\t20\t30\t30\t2.000",
+            "basicsimulation\tsearch / results\t2\t20\t700\t700\t2.000"));
+
+    List<String> regressions = Baseline.read(file.toFile()).compare(statistics, 10, 1, 5);
+
+    assertEquals(3, regressions.size());
+    assertTrue(regressions.get(0).startsWith("basicsimulation / home: p50"));
+  }
+
+  @Test
+  void ignoresRequestsWithTooFewSamples() throws Exception {
+    Path file = tempDir.resolve("baseline.tsv");
+    Files.write(file, Arrays.asList("basicsimulation\thome\t2\t1\t1\t1\t100.000"));
+
+    assertTrue(Baseline.read(file.toFile()).compare(statistics, 10, 100, 5).isEmpty());
+  }
+
+  private static SimulationStatistics statistics() {
+    try {
+      return SimulationStatistics.fromRunDirectory(
+          new File("src/test/resources/golden-files/simulation"));
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
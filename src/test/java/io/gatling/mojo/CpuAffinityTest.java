@@ -0,0 +1,81 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class CpuAffinityTest {
+
+  @Test
+  void parsesAndFormatsCpuLists() {
+    List<Integer> cpus = CpuAffinity.parseCpuList("0-3,8,10-11\n");
+
+    assertEquals(Arrays.asList(0, 1, 2, 3, 8, 10, 11), cpus);
+    assertEquals("0-3,8,10-11", CpuAffinity.formatCpuList(cpus));
+  }
+
+  @Test
+  void leasesDisjointCpusOnSingleNodes() {
+    // two nodes of 4 CPUs, interleaved like on many dual socket hosts
+    Map<Integer, Integer> nodeByCpu = new HashMap<>();
+    for (int cpu = 0; cpu < 8; cpu++) {
+      nodeByCpu.put(cpu, cpu % 2);
+    }
+    CpuAffinity host = new CpuAffinity(CpuAffinity.parseCpuList("0-7"), nodeByCpu, true);
+
+    CpuAffinity.Lease first = host.lease(1, 2);
+    CpuAffinity.Lease second = host.lease(2, 2);
+
+    assertEquals("0,2", first.get(0).getCpuList());
+    assertEquals(0, first.get(0).getNode());
+    assertEquals("4,6", second.get(0).getCpuList());
+    assertEquals("1,3", second.get(1).getCpuList());
+    assertEquals(
+        Arrays.asList("numactl", "--physcpubind=1,3", "--membind=1"), second.get(1).launcher());
+
+    // 5 and 7 left on node 1, then nothing
+    CpuAffinity.Lease last = host.lease(2, 2);
+    assertEquals("5,7", last.get(0).getCpuList());
+    assertNull(last.get(1));
+
+    first.close();
+    second.close();
+    // 4 CPUs free on node 0, 2 on node 1: spread over both
+    CpuAffinity.Placement spread = host.lease(1, 6).get(0);
+    assertEquals(-1, spread.getNode());
+    assertEquals(Arrays.asList("taskset", "-c", "0-4,6"), spread.launcher());
+
+  }
+
+  @Test
+  void pinsWithoutNumaTopology() {
+    CpuAffinity host =
+        new CpuAffinity(CpuAffinity.parseCpuList("2-5"), Collections.emptyMap(), true);
+
+    CpuAffinity.Placement placement = host.lease(1, 3).get(0);
+
+    assertEquals(-1, placement.getNode());
+    assertEquals(Arrays.asList("taskset", "-c", "2-4"), placement.launcher());
+  }
+}
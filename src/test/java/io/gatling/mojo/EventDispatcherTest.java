@@ -0,0 +1,112 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+
+class EventDispatcherTest {
+
+  @Test
+  void coalescesAndDropsPendingEvents() throws Exception {
+    List<String> calls = new CopyOnWriteArrayList<>();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch blocked = new CountDownLatch(1);
+    EventDispatcher dispatcher =
+        new EventDispatcher(2, Duration.ofSeconds(5), new SystemStreamLog());
+
+    long start = System.nanoTime();
+    dispatcher.dispatch(
+        "blocking",
+        () -> {
+          started.countDown();
+          try {
+            blocked.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          calls.add("blocking");
+        });
+    // out of the queue, so that the next ones fill it
+    started.await();
+    dispatcher.dispatch("config", () -> calls.add("config 1"));
+    dispatcher.dispatch("start", () -> calls.add("start"));
+    dispatcher.dispatch("config", () -> calls.add("config 2"));
+    dispatcher.dispatch("stop", () -> calls.add("stop"));
+    // none of the dispatches waited for the blocked call
+    assertTrue(System.nanoTime() - start < 1_000_000_000L);
+
+    blocked.countDown();
+    dispatcher.close();
+
+    // config was the oldest pending event when the queue was full
+    assertEquals(List.of("blocking", "start", "stop"), calls);
+    assertEquals(3, dispatcher.getDispatched());
+    assertEquals(1, dispatcher.getCoalesced());
+    assertEquals(1, dispatcher.getDropped());
+  }
+
+  @Test
+  void abandonsSlowEvents() throws Exception {
+    List<String> calls = new CopyOnWriteArrayList<>();
+    EventDispatcher dispatcher =
+        new EventDispatcher(10, Duration.ofMillis(200), new SystemStreamLog());
+
+    dispatcher.dispatch(
+        "slow",
+        () -> {
+          try {
+            Thread.sleep(10_000);
+            calls.add("slow");
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+    dispatcher.dispatch("fast", () -> calls.add("fast"));
+    Thread.sleep(500);
+    dispatcher.close();
+
+    assertEquals(List.of("fast"), calls);
+    assertEquals(1, dispatcher.getDispatched());
+    assertEquals(1, dispatcher.getTimedOut());
+    // fast waited for slow to be abandoned
+    assertTrue(dispatcher.getMaxLatency().toMillis() >= 200);
+  }
+
+  @Test
+  void countsOnlySuccessfulEvents() throws Exception {
+    EventDispatcher dispatcher =
+        new EventDispatcher(10, Duration.ofSeconds(5), new SystemStreamLog());
+
+    dispatcher.dispatch(
+        "failing",
+        () -> {
+          throw new IllegalStateException("boom");
+        });
+    dispatcher.dispatch("ok", () -> {});
+    dispatcher.close();
+
+    assertEquals(1, dispatcher.getDispatched());
+    assertEquals(1, dispatcher.getFailed());
+  }
+}
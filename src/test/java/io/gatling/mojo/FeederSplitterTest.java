@@ -0,0 +1,75 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FeederSplitterTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void splitsOnRecordBoundaries() throws Exception {
+    StringBuilder records = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      // quoted line breaks don't end records
+      records.append("user").append(i).append(",\"line 1\nline 2, \"\"quoted\"\"\"\n");
+    }
+    Path feeder = tempDir.resolve("users.csv");
+    Files.write(feeder, ("username,address\n" + records).getBytes(UTF_8));
+
+    File slices = tempDir.resolve("slices").toFile();
+    FeederSplitter.split(
+        feeder,
+        3,
+        slice -> new File(FeederSplitter.sliceDirectory(slices, 3, slice), "data/users.csv"));
+
+    StringBuilder joined = new StringBuilder();
+    for (int i = 0; i < 3; i++) {
+      Path slice = FeederSplitter.sliceDirectory(slices, 3, i).toPath().resolve("data/users.csv");
+      List<String> lines = Files.readAllLines(slice, UTF_8);
+      assertEquals("username,address", lines.get(0));
+      assertTrue(lines.get(1).startsWith("user"), lines.get(1));
+      // about a third of the records each
+      assertTrue(lines.size() > 60 && lines.size() < 72, String.valueOf(lines.size()));
+      joined.append(
+          new String(Files.readAllBytes(slice), UTF_8).substring("username,address\n".length()));
+    }
+    assertEquals(records.toString(), joined.toString());
+  }
+
+  @Test
+  void leavesTrailingSlicesEmptyForSmallFeeders() throws Exception {
+    Path feeder = tempDir.resolve("small.csv");
+    Files.write(feeder, "id\n1".getBytes(UTF_8));
+
+    long[] boundaries = FeederSplitter.boundaries(feeder, 3);
+
+    assertEquals(3, boundaries[0]);
+    assertEquals(3, boundaries[1]);
+    assertEquals(4, boundaries[2]);
+    assertEquals(4, boundaries[4]);
+  }
+}
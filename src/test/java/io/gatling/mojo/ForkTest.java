@@ -0,0 +1,222 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.gatling.plugin.io.PluginLogger;
+import io.gatling.plugin.util.ForkMain;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ForkTest {
+
+  /**
+   * Stands in for a hung simulation that flushes its results when asked to terminate. Signals that
+   * it's ready to be terminated with a {@literal started} file next to the flushed one.
+   */
+  public static final class HangingGatling {
+    public static void main(String[] args) throws Exception {
+      Path flushed = Paths.get(args[0]);
+      boolean ignoreTerm = args.length > 1;
+      Runtime.getRuntime()
+          .addShutdownHook(
+              new Thread(
+                  () -> {
+                    try {
+                      Files.write(flushed, Collections.singletonList("flushed"));
+                      if (ignoreTerm) {
+                        Thread.sleep(Long.MAX_VALUE);
+                      }
+                    } catch (Exception e) {
+                      // killed
+                    }
+                  }));
+      Files.createFile(flushed.resolveSibling(STARTED));
+      Thread.sleep(Long.MAX_VALUE);
+    }
+  }
+
+  /** Stands in for a simulation that ends its run once a stop is requested. */
+  public static final class StoppableGatling {
+    public static void main(String[] args) throws Exception {
+      Files.createFile(Paths.get(args[0]).resolveSibling(STARTED));
+      while (!Boolean.getBoolean(ForkControl.STOP_REQUESTED_PROPERTY)) {
+        Thread.sleep(10);
+      }
+      Files.write(Paths.get(args[0]), Collections.singletonList("reports generated"));
+    }
+  }
+
+  /** Writes the value of a system property to a file. */
+  public static final class PropertyEcho {
+    public static void main(String[] args) throws Exception {
+      Files.write(Paths.get(args[0]), System.getProperty("gatling.test.echo").getBytes(UTF_8));
+    }
+  }
+
+  private static final String STARTED = "started";
+
+  // only catches hangs, forks may take seconds to start on loaded agents
+  private static final long MAX_TEST_SECONDS = 60;
+
+  @TempDir Path tempDir;
+
+  @Test
+  void stopsGracefullyAfterMaxRunDuration() throws Exception {
+    Path flushed = tempDir.resolve("flushed");
+    // long enough for the fork to register its shutdown hook
+    Fork fork = fork(flushed.toString()).maxRunDuration(Duration.ofSeconds(2));
+
+    long start = System.nanoTime();
+    Fork.ForkException e = assertThrows(Fork.ForkException.class, fork::run);
+
+    assertTrue(e.getMessage().contains("maximum run duration"));
+    assertTrue(Files.exists(flushed));
+    assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < MAX_TEST_SECONDS);
+  }
+
+  @Test
+  void killsAfterGracePeriodOnStop() throws Exception {
+    Path flushed = tempDir.resolve("flushed");
+    Fork fork = fork(flushed.toString(), "ignoreTerm").stopGracePeriod(Duration.ofMillis(500));
+
+    whenCreated(tempDir.resolve(STARTED), () -> fork.getSchedulerExceptionHandler().stop("test"));
+    long start = System.nanoTime();
+    Fork.ForkException e = assertThrows(Fork.ForkException.class, fork::run);
+
+    assertNotEquals(0, e.exitValue);
+    assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < MAX_TEST_SECONDS);
+    assertEquals(Collections.singletonList("flushed"), Files.readAllLines(flushed));
+  }
+
+  @Test
+  void requestsStopThroughStopChannel() throws Exception {
+    Path reports = tempDir.resolve("reports");
+    Fork fork = fork(StoppableGatling.class, reports.toString()).withStopChannel();
+
+    whenCreated(tempDir.resolve(STARTED), () -> fork.getSchedulerExceptionHandler().stop("test"));
+    fork.run();
+
+    assertEquals(Collections.singletonList("reports generated"), Files.readAllLines(reports));
+  }
+
+  @Test
+  void findsTheJdkOfLinkedJavaExecutables() throws Exception {
+    Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+    Path link = Files.createSymbolicLink(tempDir.resolve("java"), java);
+
+    assertTrue(Fork.supportsArgFiles(link.toFile()));
+  }
+
+  @Test
+  void readsTheVersionOfOldJdks() throws Exception {
+    Path bin = Files.createDirectories(tempDir.resolve("jdk8").resolve("bin"));
+    Files.write(
+        tempDir.resolve("jdk8").resolve("release"),
+        Collections.singletonList("JAVA_VERSION=\"1.8.0_292\""));
+    File java = Files.createFile(bin.resolve("java")).toFile();
+
+    assertEquals(8, Fork.javaMajorVersion(java));
+    assertFalse(Fork.supportsArgFiles(java));
+    assertFalse(Fork.supportsStopChannel(java));
+  }
+
+  @Test
+  void passesJvmOptionsThroughAnArgFile() throws Exception {
+    File java = new File(System.getProperty("java.home"), "bin/java");
+    assertTrue(Fork.supportsArgFiles(java));
+
+    String value = "C:\\Program Files\\with \"quotes\"\tand\ttabs";
+    Path echo = tempDir.resolve("echo");
+    fork(
+            PropertyEcho.class,
+            Collections.singletonList("-Dgatling.test.echo=" + value),
+            echo.toString())
+        .run();
+
+    assertEquals(value, new String(Files.readAllBytes(echo), UTF_8));
+  }
+
+  /** Runs the action once the file exists, i.e. once the fork has signaled it's ready. */
+  private static void whenCreated(Path file, Runnable action) {
+    Thread watcher =
+        new Thread(
+            () -> {
+              try {
+                while (!Files.exists(file)) {
+                  Thread.sleep(10);
+                }
+                action.run();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            },
+            "fork-test-watcher");
+    watcher.setDaemon(true);
+    watcher.start();
+  }
+
+  private static Fork fork(String... args) throws Exception {
+    return fork(HangingGatling.class, args);
+  }
+
+  private static Fork fork(Class<?> mainClass, String... args) throws Exception {
+    return fork(mainClass, Collections.emptyList(), args);
+  }
+
+  private static Fork fork(Class<?> mainClass, List<String> jvmArgs, String... args)
+      throws Exception {
+    return new Fork(
+        mainClass.getName(),
+        Arrays.asList(
+            location(ForkMain.class), location(ForkControl.class), location(ForkTest.class)),
+        jvmArgs,
+        Arrays.asList(args),
+        new File(System.getProperty("java.home"), "bin/java"),
+        false,
+        new PluginLogger() {
+          @Override
+          public void info(String message) {
+            System.out.println(message);
+          }
+
+          @Override
+          public void error(String message) {
+            System.err.println(message);
+          }
+        },
+        null);
+  }
+
+  private static String location(Class<?> clazz) throws Exception {
+    return Paths.get(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HostLockTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void timesOutWhileHeld() throws Exception {
+    Path file = tempDir.resolve("locks").resolve("host.lock");
+    try (HostLock lock =
+        HostLock.acquire(file, "first run", Duration.ZERO, new SystemStreamLog())) {
+      assertEquals("first run", new String(Files.readAllBytes(file), UTF_8));
+      assertThrows(
+          TimeoutException.class,
+          () ->
+              HostLock.acquire(file, "second run", Duration.ofMillis(200), new SystemStreamLog()));
+    }
+
+    try (HostLock lock =
+        HostLock.acquire(file, "third run", Duration.ofMillis(200), new SystemStreamLog())) {
+      assertEquals("third run", new String(Files.readAllBytes(file), UTF_8));
+    }
+  }
+
+  @Test
+  void recordsQueueTime() throws Exception {
+    Path file = tempDir.resolve("host.lock");
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Duration> queueTime;
+      try (HostLock lock =
+          HostLock.acquire(file, "first run", Duration.ZERO, new SystemStreamLog())) {
+        queueTime =
+            executor.submit(
+                () -> {
+                  try (HostLock waiting =
+                      HostLock.acquire(file, "second run", Duration.ZERO, new SystemStreamLog())) {
+                    return waiting.getQueueTime();
+                  }
+                });
+        Thread.sleep(300);
+      }
+      assertTrue(queueTime.get().toMillis() >= 250, queueTime.get().toString());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static io.gatling.mojo.InjectorProtocol.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.gatling.plugin.util.ForkMain;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InjectorAgentTest {
+
+  /** Stands in for Gatling: writes a simulation log tagged with the shard index. */
+  public static final class FakeGatling {
+    public static void main(String[] args) throws Exception {
+      List<String> arguments = Arrays.asList(args);
+      Path resultsFolder = Paths.get(arguments.get(arguments.indexOf("-rf") + 1));
+      Path runDirectory = Files.createDirectories(resultsFolder.resolve("fake-run"));
+      Files.write(
+          runDirectory.resolve("simulation.log"),
+          Collections.singletonList(
+              "shard " + System.getProperty(ShardedRun.SHARD_INDEX_PROPERTY)));
+      System.out.println("fake simulation done");
+    }
+  }
+
+  /** Stands in for a hung simulation. */
+  public static final class HangingGatling {
+    public static void main(String[] args) throws Exception {
+      Thread.sleep(Long.MAX_VALUE);
+    }
+  }
+
+  private static final String TOKEN = "secret";
+  private static final String LOOPBACK = InetAddress.getLoopbackAddress().getHostAddress();
+
+  @TempDir Path tempDir;
+
+  @Test
+  void runsOneShardPerAgent() throws Exception {
+    try (InjectorAgent agent1 = newAgent("agent1");
+        InjectorAgent agent2 = newAgent("agent2")) {
+      agent1.start();
+      agent2.start();
+
+      File resultsFolder = Files.createDirectories(tempDir.resolve("results")).toFile();
+      ShardedRun shardedRun = ShardedRun.create(resultsFolder, FakeGatling.class.getName(), 2);
+
+      try (RemoteInjectorCoordinator coordinator =
+          new RemoteInjectorCoordinator(
+              Arrays.asList(LOOPBACK + ":" + agent1.getPort(), LOOPBACK + ":" + agent2.getPort()),
+              TOKEN,
+              new SystemStreamLog())) {
+        coordinator.shipClasspath(Arrays.asList(location(ForkMain.class), location(getClass())));
+        List<Integer> exitValues =
+            coordinator.run(
+                FakeGatling.class.getName(),
+                shardedRun,
+                Collections.emptyList(),
+                Collections.emptyList(),
+                System.currentTimeMillis() + 200);
+        assertEquals(Arrays.asList(0, 0), exitValues);
+        coordinator.fetchSimulationLogs(shardedRun);
+      }
+
+      List<String> shardLogs =
+          shardedRun.collectSimulationLogs().stream()
+              .map(InjectorAgentTest::readString)
+              .sorted()
+              .collect(Collectors.toList());
+      assertEquals(Arrays.asList("shard 0", "shard 1"), shardLogs);
+    }
+  }
+
+  @Test
+  void stopsShardsExceedingTheMaxRunDuration() throws Exception {
+    try (InjectorAgent agent = newAgent("agent")) {
+      agent.start();
+
+      File resultsFolder = Files.createDirectories(tempDir.resolve("results")).toFile();
+      ShardedRun shardedRun = ShardedRun.create(resultsFolder, HangingGatling.class.getName(), 1);
+
+      try (RemoteInjectorCoordinator coordinator =
+          new RemoteInjectorCoordinator(
+              Collections.singletonList(LOOPBACK + ":" + agent.getPort()),
+              TOKEN,
+              new SystemStreamLog())) {
+        coordinator.maxRunDuration(Duration.ofSeconds(1)).stopGracePeriod(Duration.ofSeconds(1));
+        coordinator.shipClasspath(Arrays.asList(location(ForkMain.class), location(getClass())));
+        List<Integer> exitValues =
+            coordinator.run(
+                HangingGatling.class.getName(),
+                shardedRun,
+                Collections.emptyList(),
+                Collections.emptyList(),
+                System.currentTimeMillis());
+        assertEquals(Collections.singletonList(-1), exitValues);
+      }
+    }
+  }
+
+  @Test
+  void cachesShippedClasspath() throws Exception {
+    try (InjectorAgent agent = newAgent("agent")) {
+      agent.start();
+      List<String> classpath = Collections.singletonList(location(ForkMain.class));
+      for (int i = 0; i < 2; i++) {
+        try (RemoteInjectorCoordinator coordinator =
+            new RemoteInjectorCoordinator(
+                Collections.singletonList(LOOPBACK + ":" + agent.getPort()),
+                TOKEN,
+                new SystemStreamLog())) {
+          coordinator.shipClasspath(classpath);
+        }
+      }
+      try (Stream<Path> cached = Files.list(tempDir.resolve("agent").resolve("classpath"))) {
+        assertEquals(1, cached.count());
+      }
+    }
+  }
+
+  @Test
+  void rejectsCoordinatorsWithoutTheToken() throws Exception {
+    try (InjectorAgent agent = newAgent("agent")) {
+      agent.start();
+      IOException e =
+          assertThrows(
+              IOException.class,
+              () ->
+                  new RemoteInjectorCoordinator(
+                      Collections.singletonList(LOOPBACK + ":" + agent.getPort()),
+                      "wrong",
+                      new SystemStreamLog()));
+      assertTrue(e.getMessage().contains("Authentication failed"), e.getMessage());
+    }
+  }
+
+  @Test
+  void givesUpOnSilentAgents() throws Exception {
+    // accepts connections, but never answers
+    try (ServerSocket silentAgent = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      IOException e =
+          assertThrows(
+              IOException.class,
+              () ->
+                  new RemoteInjectorCoordinator(
+                      Collections.singletonList(LOOPBACK + ":" + silentAgent.getLocalPort()),
+                      TOKEN,
+                      Duration.ofMillis(200),
+                      new SystemStreamLog()));
+      assertTrue(e.getMessage().contains("sent nothing"), e.getMessage());
+    }
+  }
+
+  @Test
+  void rejectsClasspathEntriesOutsideOfTheCache() throws Exception {
+    try (InjectorAgent agent = newAgent("agent");
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), agent.getPort())) {
+      agent.start();
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      out.writeUTF(HELLO);
+      out.writeInt(VERSION);
+      out.flush();
+      assertEquals(HELLO, in.readUTF());
+      in.readInt();
+      String challenge = in.readUTF();
+      out.writeUTF(AUTH);
+      out.writeUTF(authenticate(TOKEN, challenge));
+      out.flush();
+      assertEquals(READY, in.readUTF());
+
+      out.writeUTF(CLASSPATH);
+      writeStrings(out, Collections.singletonList("../../escaped"));
+      out.flush();
+
+      // the agent ends the session instead of answering
+      assertThrows(IOException.class, in::readUTF);
+      assertFalse(Files.exists(tempDir.resolve("escaped")));
+    }
+  }
+
+  private InjectorAgent newAgent(String name) throws IOException {
+    return new InjectorAgent(
+        InetAddress.getLoopbackAddress(),
+        0,
+        tempDir.resolve(name).toFile(),
+        TOKEN,
+        InjectorAgent.newLogger());
+  }
+
+  private static String location(Class<?> clazz) throws Exception {
+    return Paths.get(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+  }
+
+  private static String readString(Path file) {
+    try {
+      return new String(Files.readAllBytes(file)).trim();
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.nio.file.Path;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+class JUnitReportTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void writesOneTestCasePerRequest() throws Exception {
+    File file = tempDir.resolve("junit/TEST-basicsimulation.xml").toFile();
+    JUnitReport.write(
+        SimulationStatistics.fromRunDirectory(
+            new File("src/test/resources/golden-files/simulation")),
+        file);
+
+    Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file);
+    Element suite = document.getDocumentElement();
+    assertEquals("computerdatabase.BasicSimulation", suite.getAttribute("name"));
+    assertEquals("1.000", suite.getAttribute("time"));
+
+    NodeList testCases = suite.getElementsByTagName("testcase");
+    assertEquals(2, testCases.getLength());
+    Element home = (Element) testCases.item(0);
+    assertEquals("home", home.getAttribute("name"));
+    assertEquals("0.075", home.getAttribute("time"));
+    assertEquals("search / results", ((Element) testCases.item(1)).getAttribute("name"));
+
+    NodeList properties = home.getElementsByTagName("property");
+    assertEquals("count", ((Element) properties.item(0)).getAttribute("name"));
+    assertEquals("2", ((Element) properties.item(0)).getAttribute("value"));
+    assertEquals("p50", ((Element) properties.item(5)).getAttribute("name"));
+    assertEquals("50", ((Element) properties.item(5)).getAttribute("value"));
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JfrSummaryTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void summarizesRecording() throws Exception {
+    Path file = tempDir.resolve(JfrSummary.RECORDING_FILE);
+    try (Recording recording = new Recording(Configuration.getConfiguration("profile"))) {
+      recording.start();
+      List<byte[]> garbage = new ArrayList<>();
+      long end = System.currentTimeMillis() + 500;
+      while (System.currentTimeMillis() < end) {
+        garbage.add(new byte[1024]);
+        if (garbage.size() > 10_000) {
+          garbage.clear();
+        }
+      }
+      System.gc();
+      recording.stop();
+      recording.dump(file);
+    }
+
+    JfrSummary summary = JfrSummary.read(file);
+
+    assertTrue(summary.getGcCount() > 0);
+    assertTrue(summary.getExecutionSamples() > 0);
+    List<String> lines = summary.lines();
+    assertTrue(lines.get(1).startsWith("GC pauses: "));
+    assertTrue(lines.size() > 5, "hottest frames");
+  }
+}
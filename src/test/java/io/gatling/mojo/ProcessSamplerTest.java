@@ -0,0 +1,64 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.gatling.plugin.io.PluginLogger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProcessSamplerTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void samplesTheCurrentProcess() throws Exception {
+    if (!ProcessSampler.isSupported()) {
+      return;
+    }
+    Path output = tempDir.resolve("injector.csv");
+    ProcessSampler sampler =
+        new ProcessSampler(
+                ProcessHandle.current().pid(),
+                output,
+                Duration.ofMillis(50),
+                new PluginLogger() {
+                  @Override
+                  public void info(String message) {}
+
+                  @Override
+                  public void error(String message) {}
+                })
+            .start();
+    Thread.sleep(500);
+    sampler.close();
+
+    List<String> lines = Files.readAllLines(output);
+    assertEquals(ProcessSampler.HEADER, lines.get(0));
+    assertTrue(lines.size() > 2);
+    assertEquals(lines.size() - 1, sampler.getSamples());
+    String[] columns = lines.get(1).split(",");
+    assertEquals(9, columns.length);
+    assertTrue(Long.parseLong(columns[3]) > 0, "rss");
+    assertTrue(Long.parseLong(columns[4]) > 0, "threads");
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+
+class ReactorForkLimiterTest {
+
+  @Test
+  void sharesOneLimiterPerBuild() {
+    Object build = new Object();
+    ReactorForkLimiter limiter = ReactorForkLimiter.forBuild(build, 2, new SystemStreamLog());
+
+    assertSame(limiter, ReactorForkLimiter.forBuild(build, 8, new SystemStreamLog()));
+    assertEquals(2, limiter.getCapacity());
+  }
+
+  @Test
+  void limitsConcurrentWeight() throws Exception {
+    ReactorForkLimiter limiter =
+        ReactorForkLimiter.forBuild(new Object(), 4, new SystemStreamLog());
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+
+    ExecutorService modules = Executors.newFixedThreadPool(6);
+    try {
+      List<Future<?>> executions = new ArrayList<>();
+      for (int i = 0; i < 6; i++) {
+        executions.add(
+            modules.submit(
+                () -> {
+                  // weights above the capacity are capped, and run alone
+                  try (ReactorForkLimiter.Slot slot = limiter.acquire(3, new SystemStreamLog())) {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(50);
+                    running.decrementAndGet();
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> execution : executions) {
+        execution.get();
+      }
+    } finally {
+      modules.shutdownNow();
+    }
+
+    assertEquals(1, maxRunning.get());
+    assertEquals(4, limiter.getAvailable());
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class RecorderMojoTest {
+
+  @Test
+  void generatesSimulationClassNamesFromHarFileNames() {
+    assertEquals("CheckoutFlowSimulation", RecorderMojo.simulationClassName("checkout-flow.har"));
+    assertEquals("LoginV2Simulation", RecorderMojo.simulationClassName("login v2.HAR"));
+    assertEquals("Har2024SearchSimulation", RecorderMojo.simulationClassName("2024_search.har"));
+    assertEquals("HarSimulation", RecorderMojo.simulationClassName("-.har"));
+  }
+}
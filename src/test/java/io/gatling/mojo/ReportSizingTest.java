@@ -0,0 +1,90 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+
+class ReportSizingTest {
+
+  private static final Log LOG = new SystemStreamLog();
+
+  private static ReportSizing goldenRun() throws Exception {
+    return ReportSizing.estimate(
+        SimulationLog.simulationLogs(new File("src/test/resources/golden-files/simulation")));
+  }
+
+  @Test
+  void estimatesHeapFromSampledRequestNames() throws Exception {
+    ReportSizing sizing = goldenRun();
+
+    assertEquals(2, sizing.getRequestNames());
+    assertEquals(512 + 2 * 8, sizing.getHeapMb());
+    assertTrue(sizing.fits(1024));
+    assertFalse(sizing.fits(512));
+  }
+
+  @Test
+  void raisesHeapAndPicksParallelCollector() throws Exception {
+    ReportSizing sizing = goldenRun();
+
+    assertEquals(
+        Arrays.asList("-Xss100M", "-Xms528m", "-Xmx528m", "-XX:+UseParallelGC"),
+        sizing.jvmArgs(Arrays.asList("-Xmx256m", "-XX:+UseG1GC", "-Xss100M"), 16384, true, LOG));
+    // the default maximum heap is a quarter of the memory of the host
+    assertEquals(
+        Arrays.asList("-Xss100M", "-Xms528m", "-Xmx528m", "-XX:+UseParallelGC"),
+        sizing.jvmArgs(Arrays.asList("-Xss100M"), 2048, false, LOG));
+
+    List<String> largeEnough = Arrays.asList("-Xmx1g", "-XX:+UseG1GC");
+    assertSame(largeEnough, sizing.jvmArgs(largeEnough, 1024, true, LOG));
+  }
+
+  @Test
+  void keepsExplicitHeapUnlessAskedToReplaceIt() throws Exception {
+    ReportSizing sizing = goldenRun();
+
+    List<String> explicit = Arrays.asList("-Xmx256m", "-XX:+UseG1GC");
+    assertSame(explicit, sizing.jvmArgs(explicit, 16384, false, LOG));
+  }
+
+  @Test
+  void keepsUnparseableHeap() throws Exception {
+    ReportSizing sizing = goldenRun();
+
+    List<String> unparseable = Arrays.asList("-Xmx2gb", "-XX:+UseG1GC");
+    assertSame(unparseable, sizing.jvmArgs(unparseable, 16384, true, LOG));
+    assertThrows(NumberFormatException.class, () -> ReportSizing.parseSizeMb(""));
+  }
+
+  @Test
+  void parsesHeapSizes() {
+    assertEquals(4096, ReportSizing.parseSizeMb("4g"));
+    assertEquals(512, ReportSizing.parseSizeMb("512M"));
+    assertEquals(2, ReportSizing.parseSizeMb("2048k"));
+    assertEquals(1, ReportSizing.parseSizeMb("1048576"));
+  }
+}
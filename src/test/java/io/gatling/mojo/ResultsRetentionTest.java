@@ -0,0 +1,90 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ResultsRetentionTest {
+
+  @TempDir Path resultsFolder;
+
+  @Test
+  void archivesRunsBeyondMaxRuns() throws Exception {
+    File oldest = run("basicsimulation-1", 4);
+    File older = run("basicsimulation-2", 3);
+    File recent = run("basicsimulation-3", 2);
+    File current = run("basicsimulation-4", 0);
+
+    List<File> expired =
+        new ResultsRetention(resultsFolder.toFile(), 2, 0, 0, true, new SystemStreamLog())
+            .apply(Collections.singleton(current));
+
+    assertEquals(2, expired.size());
+    assertFalse(oldest.exists());
+    assertFalse(older.exists());
+    assertTrue(recent.exists());
+    assertTrue(current.exists());
+
+    Path archive = resultsFolder.resolve(ResultsRetention.ARCHIVE_FOLDER);
+    assertTrue(Files.exists(archive.resolve("basicsimulation-1.zip")));
+    assertTrue(Files.exists(archive.resolve("basicsimulation-2.zip")));
+    assertEquals(2, Files.readAllLines(archive.resolve(ResultsRetention.INDEX_FILE)).size());
+  }
+
+  @Test
+  void deletesRunsBeyondMaxAge() throws Exception {
+    File old = run("basicsimulation-1", 10);
+    File recent = run("basicsimulation-2", 1);
+
+    new ResultsRetention(resultsFolder.toFile(), 0, 7, 0, false, new SystemStreamLog())
+        .apply(Collections.emptySet());
+
+    assertFalse(old.exists());
+    assertTrue(recent.exists());
+    assertFalse(Files.exists(resultsFolder.resolve(ResultsRetention.ARCHIVE_FOLDER)));
+  }
+
+  @Test
+  void leavesRunsInProgressAlone() throws Exception {
+    File staged = run(".basicsimulation-1", 10);
+
+    new ResultsRetention(resultsFolder.toFile(), 1, 7, 0, false, new SystemStreamLog())
+        .apply(Collections.emptySet());
+
+    assertTrue(staged.exists());
+  }
+
+  private File run(String name, int ageDays) throws IOException {
+    Path run = Files.createDirectories(resultsFolder.resolve(name));
+    Files.write(run.resolve(SimulationLog.FILE_NAME), Collections.singletonList("RUN\t" + name));
+    File directory = run.toFile();
+    directory.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(ageDays));
+    return directory;
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ShardedRunTest {
+
+  @TempDir Path resultsFolder;
+
+  @Test
+  void createsDistinctRunDirectories() throws Exception {
+    ShardedRun first = ShardedRun.create(resultsFolder.toFile(), "computerdatabase.Basic", 2);
+    ShardedRun second = ShardedRun.create(resultsFolder.toFile(), "computerdatabase.Basic", 2);
+
+    assertNotEquals(first.getCombinedRunDirectory(), second.getCombinedRunDirectory());
+    assertTrue(first.getCombinedRunDirectory().getName().startsWith("basic-"));
+    // staged until published
+    assertEquals(
+        "." + first.getCombinedRunDirectory().getName(), first.getStagingDirectory().getName());
+    assertFalse(first.getCombinedRunDirectory().exists());
+    assertTrue(first.shardResultsFolder(0).isDirectory());
+    assertTrue(first.shardResultsFolder(1).isDirectory());
+  }
+
+  @Test
+  void failsWhenTheRunDirectoryCantBeCreated() throws Exception {
+    File notADirectory = Files.createFile(resultsFolder.resolve("results")).toFile();
+
+    assertThrows(
+        IOException.class, () -> ShardedRun.create(notADirectory, "computerdatabase.Basic", 1));
+  }
+
+  @Test
+  void movesShardLogsIntoTheCombinedRunDirectory() throws Exception {
+    ShardedRun run = ShardedRun.create(resultsFolder.toFile(), "computerdatabase.Basic", 2);
+    Path shard0 = shardLog(run, 0);
+    Path shard1 = shardLog(run, 1);
+
+    List<Path> logs = run.collectSimulationLogs();
+
+    Path staging = run.getStagingDirectory().toPath();
+    assertEquals(
+        Arrays.asList(
+            staging.resolve("simulation-shard-0-simulation.log"),
+            staging.resolve("simulation-shard-1-simulation.log")),
+        logs);
+    assertFalse(Files.exists(shard0));
+    assertFalse(Files.exists(shard1));
+
+    run.publish();
+
+    assertFalse(Files.exists(staging));
+    assertEquals(
+        Collections.singletonList("RUN\tshard 0"),
+        Files.readAllLines(
+            run.getCombinedRunDirectory().toPath().resolve("simulation-shard-0-simulation.log")));
+  }
+
+  private static Path shardLog(ShardedRun run, int shardIndex) throws IOException {
+    Path runDirectory =
+        Files.createDirectories(run.shardResultsFolder(shardIndex).toPath().resolve("basic-1"));
+    return Files.write(
+        runDirectory.resolve(SimulationLog.FILE_NAME),
+        Collections.singletonList("RUN\tshard " + shardIndex));
+  }
+}
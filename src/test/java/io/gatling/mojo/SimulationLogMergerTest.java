@@ -0,0 +1,83 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SimulationLogMergerTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void mergesByTimestamp() throws Exception {
+    Path log1 =
+        write(
+            "injector1.log",
+            "RUN\tcomputerdatabase.BasicSimulation\tbasicsimulation\t1000\t \t3.9.5",
+            "ASSERTION\tAQEAAAA=",
+            "USER\tUsers\tSTART\t1010",
+            "REQUEST\t\thome\t1010\t1030\tOK\t ",
+            "USER\tUsers\tEND\t1040");
+    Path log2 =
+        write(
+            "injector2.log",
+            "RUN\tcomputerdatabase.BasicSimulation\tbasicsimulation\t1005\t \t3.9.5",
+            "ASSERTION\tAQEAAAA=",
+            "USER\tUsers\tSTART\t1015",
+            "REQUEST\t\thome\t1016\t1020\tKO\tstatus.find.is(200)",
+            "ERROR\tstatus.find.is(200)\t1020",
+            "USER\tUsers\tEND\t1035");
+    Path merged = tempDir.resolve("simulation.log");
+
+    long records = SimulationLogMerger.merge(Arrays.asList(log1, log2), merged);
+
+    List<String> expected =
+        Arrays.asList(
+            "RUN\tcomputerdatabase.BasicSimulation\tbasicsimulation\t1000\t \t3.9.5",
+            "ASSERTION\tAQEAAAA=",
+            "USER\tUsers\tSTART\t1010",
+            "USER\tUsers\tSTART\t1015",
+            "REQUEST\t\thome\t1016\t1020\tKO\tstatus.find.is(200)",
+            "ERROR\tstatus.find.is(200)\t1020",
+            "REQUEST\t\thome\t1010\t1030\tOK\t ",
+            "USER\tUsers\tEND\t1035",
+            "USER\tUsers\tEND\t1040");
+    assertEquals(expected, Files.readAllLines(merged));
+    assertEquals(expected.size(), records);
+  }
+
+  @Test
+  void rejectsBinaryLogs() throws Exception {
+    Path binary = tempDir.resolve("binary.log");
+    Files.write(binary, new byte[] {0, 0, 0, 1, 2, 3});
+    assertThrows(
+        IOException.class,
+        () -> SimulationLogMerger.merge(Arrays.asList(binary), tempDir.resolve("merged.log")));
+  }
+
+  private Path write(String name, String... lines) throws IOException {
+    return Files.write(tempDir.resolve(name), Arrays.asList(lines));
+  }
+}
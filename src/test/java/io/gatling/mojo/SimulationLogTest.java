@@ -0,0 +1,66 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SimulationLogTest {
+
+  private static final Path GOLDEN_LOG =
+      Paths.get("src/test/resources/golden-files/simulation/simulation.log");
+
+  @TempDir Path tempDir;
+
+  @Test
+  void readsCompressedLogs() throws Exception {
+    Files.copy(GOLDEN_LOG, tempDir.resolve(SimulationLog.FILE_NAME));
+
+    List<Path> compressed = SimulationLog.compress(tempDir.toFile());
+
+    Path log = tempDir.resolve(SimulationLog.FILE_NAME + ".gz");
+    assertEquals(Collections.singletonList(log), compressed);
+    assertFalse(Files.exists(tempDir.resolve(SimulationLog.FILE_NAME)));
+    assertEquals(Collections.singletonList(log), SimulationLog.simulationLogs(tempDir.toFile()));
+
+    SimulationStatistics expected =
+        SimulationStatistics.fromSimulationLogs(Collections.singletonList(GOLDEN_LOG));
+    SimulationStatistics actual = SimulationStatistics.fromRunDirectory(tempDir.toFile());
+    assertEquals(expected.summaryLines(), actual.summaryLines());
+  }
+
+  @Test
+  void decompressesForReports() throws Exception {
+    Files.copy(GOLDEN_LOG, tempDir.resolve(SimulationLog.FILE_NAME));
+    SimulationLog.compress(tempDir.toFile());
+
+    List<Path> decompressed = SimulationLog.decompress(tempDir.toFile());
+
+    Path log = tempDir.resolve(SimulationLog.FILE_NAME);
+    assertEquals(Collections.singletonList(log), decompressed);
+    assertEquals(Files.readAllLines(GOLDEN_LOG), Files.readAllLines(log));
+    // the plain log is preferred while both are there
+    assertEquals(Collections.singletonList(log), SimulationLog.simulationLogs(tempDir.toFile()));
+  }
+}
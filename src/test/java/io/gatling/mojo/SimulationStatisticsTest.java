@@ -0,0 +1,81 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SimulationStatisticsTest {
+
+  private SimulationStatistics statistics;
+
+  @BeforeEach
+  void parseSimulationLog() throws Exception {
+    File runDirectory = new File("src/test/resources/golden-files/simulation");
+    statistics = SimulationStatistics.fromRunDirectory(runDirectory);
+  }
+
+  @Test
+  void header() {
+    assertEquals("computerdatabase.BasicSimulation", statistics.getSimulationClass());
+    assertEquals("basicsimulation", statistics.getSimulationId());
+    assertEquals(1000, statistics.getDurationMillis());
+  }
+
+  @Test
+  void requests() {
+    SimulationStatistics.RequestStatistics home = statistics.getRequest("home");
+    assertEquals(2, home.getCount());
+    assertEquals(0, home.getKoCount());
+    assertEquals(50, home.getPercentile(50));
+    assertEquals(100, home.getMax());
+    assertEquals(2.0, statistics.getThroughput(home), 0.001);
+
+    SimulationStatistics.RequestStatistics results = statistics.getRequest("search / results");
+    assertEquals(2, results.getCount());
+    assertEquals(0.5, results.getErrorRatio(), 0.001);
+
+    assertEquals(4, statistics.getAllRequests().getCount());
+  }
+
+  @Test
+  void summary() {
+    List<String> lines = statistics.summaryLines();
+
+    assertEquals(4, lines.size());
+    assertTrue(lines.get(0).startsWith("Request "), lines.get(0));
+    assertTrue(lines.get(1).startsWith("All Requests "), lines.get(1));
+    assertTrue(lines.get(3).startsWith("search / results "), lines.get(3));
+    assertTrue(lines.get(3).contains(" 50.00 "), lines.get(3));
+  }
+
+  @Test
+  void histogramIsAccurateAndBounded() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 100_000; i++) {
+      histogram.record(i);
+    }
+    assertEquals(100_000, histogram.getCount());
+    assertEquals(100_000, histogram.getMax());
+    long p95 = histogram.getPercentile(95);
+    assertTrue(Math.abs(p95 - 95_000) < 95_000 * 0.03, "p95 was " + p95);
+  }
+}
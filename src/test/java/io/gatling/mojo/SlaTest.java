@@ -0,0 +1,68 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SlaTest {
+
+  private SimulationStatistics statistics;
+
+  @BeforeEach
+  void parseSimulationLog() throws Exception {
+    statistics =
+        SimulationStatistics.fromRunDirectory(
+            new File("src/test/resources/golden-files/simulation"));
+  }
+
+  @Test
+  void reportsViolationsOfMatchingRequests() {
+    List<String> violations =
+        Sla.violations(
+            Arrays.asList(sla("home", 200L, 1.0), sla("search / .*", 500L, 10.0)), statistics);
+
+    assertEquals(
+        Arrays.asList(
+            "basicsimulation / search / results: p95 696ms exceeds SLA 500ms",
+            "basicsimulation / search / results: error rate 50.00% exceeds SLA 10.00%"),
+        violations);
+  }
+
+  @Test
+  void appliesToAllRequestsByDefault() {
+    List<String> violations =
+        Sla.violations(Collections.singletonList(sla(".*", null, 40.0)), statistics);
+
+    assertEquals(1, violations.size());
+    assertTrue(violations.get(0).startsWith("basicsimulation / search / results: error rate"));
+  }
+
+  private static Sla sla(String pattern, Long p95, Double errorRate) {
+    Sla sla = new Sla();
+    sla.setPattern(pattern);
+    sla.setP95(p95);
+    sla.setErrorRate(errorRate);
+    return sla;
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SummaryReportTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void writesJsonAndMarkdownSummaries() throws Exception {
+    SimulationStatistics statistics =
+        SimulationStatistics.fromRunDirectory(
+            new File("src/test/resources/golden-files/simulation"));
+
+    SummaryReport.write(statistics, tempDir.toFile());
+
+    String json = new String(Files.readAllBytes(tempDir.resolve(SummaryReport.JSON_FILE)), UTF_8);
+    assertTrue(json.contains("\"simulation\": \"computerdatabase.BasicSimulation\""), json);
+    assertTrue(json.contains("\"durationMillis\": 1000"), json);
+    assertTrue(
+        json.contains(
+            "{\"name\": \"home\", \"count\": 2, \"errors\": 0, \"errorRate\": 0.00,"
+                + " \"rps\": 2.00, \"p50\": 50, \"p95\": 100, \"p99\": 100, \"max\": 100}"),
+        json);
+    assertTrue(json.contains("{\"name\": \"search / results\", \"count\": 2, \"errors\": 1"), json);
+
+    List<String> markdown = Files.readAllLines(tempDir.resolve(SummaryReport.MARKDOWN_FILE), UTF_8);
+    assertEquals("# computerdatabase.BasicSimulation", markdown.get(0));
+    assertEquals(
+        "| Request | Count | Errors | Error % | Req/s | p50 | p95 | p99 | Max |", markdown.get(4));
+    assertTrue(markdown.get(6).startsWith("| All Requests | 4 | 1 | 25.00 |"), markdown.get(6));
+  }
+}
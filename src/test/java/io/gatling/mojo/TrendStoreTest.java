@@ -0,0 +1,91 @@
+/*
+ * Copyright 2011-2022 GatlingCorp (https://gatling.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.gatling.mojo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TrendStoreTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  void readsTheLastRuns() throws Exception {
+    TrendStore store = new TrendStore(tempDir.resolve("trends").toFile());
+    SimulationStatistics statistics =
+        SimulationStatistics.fromRunDirectory(
+            new File("src/test/resources/golden-files/simulation"));
+    for (int i = 1; i <= 5; i++) {
+      store.append(statistics, "basicsimulation-" + i, "rev" + i);
+    }
+
+    assertEquals(Collections.singletonList("basicsimulation"), store.simulations());
+    List<TrendStore.Run> runs = store.read("basicsimulation", 3);
+    assertEquals(3, runs.size());
+    assertEquals("basicsimulation-3", runs.get(0).getName());
+    assertEquals("rev5", runs.get(2).getRevision());
+
+    TrendStore.Summary home = runs.get(2).getRequests().get("home");
+    assertEquals(2, home.getCount());
+    assertEquals(100, home.getP99());
+    assertEquals(2.0, home.getThroughput(), 0.001);
+    assertEquals(0.5, runs.get(2).getRequests().get("search / results").getErrorRatio(), 0.001);
+  }
+
+  @Test
+  void detectsDriftFromTheMedian() throws Exception {
+    Path store = tempDir.resolve("basicsimulation.tsv");
+    Files.write(
+        store,
+        Arrays.asList(
+            "1\trun-1\trev\thome\t100\t10\t20\t30\t10.000\t0.0000",
+            "2\trun-2\trev\thome\t100\t10\t22\t30\t10.000\t0.0000",
+            "3\trun-3\trev\thome\t100\t10\t21\t30\t10.000\t0.0000",
+            "4\trun-4\trev\thome\t100\t10\t40\t50\t10.000\t0.2000"));
+    List<TrendStore.Run> runs = new TrendStore(tempDir.toFile()).read("basicsimulation", 10);
+    TrendReport report = new TrendReport("basicsimulation", runs);
+
+    List<String> drifts = report.drift(10, 3);
+    assertEquals(2, drifts.size());
+    assertTrue(drifts.get(0).startsWith("basicsimulation / home: p95 40ms"));
+    assertTrue(report.drift(10, 4).isEmpty());
+
+    File page = tempDir.resolve("out/basicsimulation.html").toFile();
+    report.write(page);
+    assertTrue(new String(Files.readAllBytes(page.toPath())).contains("<polyline class=\"p95\""));
+  }
+
+  @Test
+  void resolvesTheGitRevision() throws Exception {
+    Path git = Files.createDirectories(tempDir.resolve("repo/.git/refs/heads"));
+    Files.write(git.resolve("main"), Collections.singletonList("0123abcd"));
+    Files.write(
+        tempDir.resolve("repo/.git/HEAD"), Collections.singletonList("ref: refs/heads/main"));
+    Path module = Files.createDirectories(tempDir.resolve("repo/module"));
+
+    assertEquals("0123abcd", TrendStore.gitRevision(module.toFile()));
+    assertEquals(TrendStore.UNKNOWN_REVISION, TrendStore.gitRevision(tempDir.toFile()));
+  }
+}